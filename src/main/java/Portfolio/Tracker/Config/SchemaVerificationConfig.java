@@ -0,0 +1,55 @@
+package Portfolio.Tracker.Config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Refuses to start against a database that lacks the unique (user_id, symbol) index on
+ * {@code portfolios}. TransactionService creates missing positions with
+ * {@code INSERT ... ON CONFLICT DO NOTHING} and then locks the row; without the index
+ * the insert never conflicts and concurrent first buys create duplicate positions.
+ * The index is created by migration V8; JdbcTemplate is only available once
+ * migrations have run.
+ */
+@Configuration
+public class SchemaVerificationConfig {
+    private static final Set<String> POSITION_KEY = Set.of("user_id", "symbol");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SchemaVerificationConfig(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void verifyPortfolioUniqueIndex() {
+        Boolean present = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Map<String, Set<String>> uniqueIndexes = new HashMap<>();
+            try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(),
+                    "portfolios", true, false)) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (index != null && column != null) {
+                        uniqueIndexes.computeIfAbsent(index, key -> new TreeSet<>()).add(column.toLowerCase());
+                    }
+                }
+            }
+            return uniqueIndexes.values().stream().anyMatch(POSITION_KEY::equals);
+        });
+        if (!Boolean.TRUE.equals(present)) {
+            throw new IllegalStateException("portfolios has no unique index on (user_id, symbol); "
+                + "apply migration V8 before starting the application");
+        }
+    }
+}
@@ -1,12 +1,30 @@
 package Portfolio.Tracker.Config;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
+    // Runs streaming responses such as the transaction export. Bounded so a burst of
+    // downloads queues and then gets rejected instead of growing threads without limit;
+    // kept out of the context so it does not replace the application task executor.
+    private final ThreadPoolTaskExecutor asyncRequestExecutor = new ThreadPoolTaskExecutor();
+
+    public WebConfig(@Value("${web.async.threads:8}") int threads,
+                     @Value("${web.async.queue-capacity:32}") int queueCapacity) {
+        asyncRequestExecutor.setCorePoolSize(threads);
+        asyncRequestExecutor.setMaxPoolSize(threads);
+        asyncRequestExecutor.setQueueCapacity(queueCapacity);
+        asyncRequestExecutor.setThreadNamePrefix("mvc-async-");
+        asyncRequestExecutor.initialize();
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -15,4 +33,14 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedHeaders("*")
                 .allowCredentials(true);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(asyncRequestExecutor);
+    }
+
+    @PreDestroy
+    public void shutdownAsyncRequestExecutor() {
+        asyncRequestExecutor.shutdown();
+    }
+}
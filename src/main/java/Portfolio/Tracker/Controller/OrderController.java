@@ -0,0 +1,56 @@
+package Portfolio.Tracker.Controller;
+
+import Portfolio.Tracker.DTO.*;
+import Portfolio.Tracker.Service.OpenOrderService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/orders")
+@RequiredArgsConstructor
+public class OrderController {
+    private final OpenOrderService openOrderService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<OpenOrderResponse>> placeOrder(
+            @RequestBody OpenOrderRequest request,
+            Authentication auth) {
+        try {
+            OpenOrderResponse order = openOrderService.placeOrder(request, auth.getName());
+            return ResponseEntity.ok(new ApiResponse<>(true, "Order placed successfully", order));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<OpenOrderResponse>>> getOrders(
+            @RequestParam(required = false) String status,
+            Authentication auth) {
+        try {
+            List<OpenOrderResponse> orders = openOrderService.getOrders(auth.getName(), status);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Orders retrieved successfully", orders));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    @DeleteMapping("/{orderId}")
+    public ResponseEntity<ApiResponse<OpenOrderResponse>> cancelOrder(
+            @PathVariable Long orderId,
+            Authentication auth) {
+        try {
+            OpenOrderResponse order = openOrderService.cancelOrder(orderId, auth.getName());
+            return ResponseEntity.ok(new ApiResponse<>(true, "Order cancelled successfully", order));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+}
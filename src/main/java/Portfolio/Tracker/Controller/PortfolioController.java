@@ -2,10 +2,17 @@ package Portfolio.Tracker.Controller;
 
 import Portfolio.Tracker.DTO.*;
 import Portfolio.Tracker.Service.PortfolioService;
+import Portfolio.Tracker.Service.PortfolioSnapshotService;
+import Portfolio.Tracker.Service.PortfolioStreamService;
+import Portfolio.Tracker.Service.RiskService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -14,6 +21,9 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PortfolioController {
     private final PortfolioService portfolioService;
+    private final PortfolioStreamService portfolioStreamService;
+    private final PortfolioSnapshotService portfolioSnapshotService;
+    private final RiskService riskService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<PortfolioResponse>>> getPortfolio(Authentication auth) {
@@ -37,4 +47,49 @@ public class PortfolioController {
                 .body(new ApiResponse<>(false, e.getMessage(), null));
         }
     }
+
+    /**
+     * Daily end-of-day portfolio values for the range (1W, 1M, 3M, 6M, YTD, 1Y, 5Y, ALL).
+     */
+    @GetMapping("/history")
+    public ResponseEntity<ApiResponse<List<PortfolioValuePoint>>> getHistory(
+            Authentication auth,
+            @RequestParam(defaultValue = "1M") String range) {
+        try {
+            List<PortfolioValuePoint> history = portfolioSnapshotService.getHistory(auth.getName(), range);
+            return ResponseEntity.ok(new ApiResponse<>(true, "History retrieved successfully", history));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    /**
+     * Monte Carlo value at risk, expected shortfall and drawdown over the horizon.
+     */
+    @GetMapping("/risk")
+    public ResponseEntity<ApiResponse<PortfolioRisk>> getRisk(
+            Authentication auth,
+            @RequestParam(defaultValue = "10") int horizonDays,
+            @RequestParam(defaultValue = "20000") int paths) {
+        try {
+            PortfolioRisk risk = riskService.simulate(auth.getName(), horizonDays, paths);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Risk estimated successfully", risk));
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new ApiResponse<>(false, e.getMessage(), null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    /**
+     * Server-Sent Events stream of the user's portfolio: a "snapshot" event on connect,
+     * then "update" events with the changed holdings and fresh stats as prices move.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPortfolio(Authentication auth) {
+        return portfolioStreamService.subscribe(auth.getName());
+    }
 }
\ No newline at end of file
@@ -1,16 +1,34 @@
 package Portfolio.Tracker.Controller;
 
 import Portfolio.Tracker.DTO.*;
+import Portfolio.Tracker.Service.CandleAggregator;
 import Portfolio.Tracker.Service.StockPriceService;
+import Portfolio.Tracker.Service.SymbolSearchService;
+import Portfolio.Tracker.Service.TickStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping("/stocks")
 @RequiredArgsConstructor
 public class StockController {
+    private static final int MAX_BATCH_SYMBOLS = 50;
+    private static final int MAX_SEARCH_RESULTS = 50;
+
     private final StockPriceService stockPriceService;
+    private final TickStore tickStore;
+    private final CandleAggregator candleAggregator;
+    private final SymbolSearchService symbolSearchService;
 
     @GetMapping("/quote/{symbol}")
     public ResponseEntity<ApiResponse<StockQuote>> getQuote(@PathVariable String symbol) {
@@ -23,6 +41,50 @@ public class StockController {
         }
     }
 
+    /**
+     * Quotes for several symbols in one call. The ETag covers every symbol's version, so
+     * a client repeating the request with If-None-Match gets a bodiless 304 when nothing
+     * changed. Symbols whose quote could not be resolved are left out.
+     */
+    @GetMapping("/quotes")
+    public ResponseEntity<ApiResponse<Map<String, VersionedQuote>>> getQuotes(@RequestParam String symbols) {
+        Set<String> requested = parseSymbols(symbols);
+        if (requested.isEmpty() || requested.size() > MAX_BATCH_SYMBOLS) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse<>(false, "Between 1 and " + MAX_BATCH_SYMBOLS + " symbols are required", null));
+        }
+
+        Map<String, StockQuote> quotes = stockPriceService.getQuotes(requested);
+        Map<String, VersionedQuote> versioned = new LinkedHashMap<>();
+        for (String symbol : requested) {
+            StockQuote quote = quotes.get(symbol);
+            if (quote != null) {
+                versioned.put(symbol, VersionedQuote.of(symbol, quote));
+            }
+        }
+
+        // Spring answers 304 itself when the If-None-Match header matches this ETag
+        return ResponseEntity.ok()
+            .eTag(VersionedQuote.combinedVersion(versioned.values()))
+            .body(new ApiResponse<>(true, "Quotes retrieved successfully", versioned));
+    }
+
+    @GetMapping("/info")
+    public ResponseEntity<ApiResponse<Map<String, StockInfo>>> getStockInfos(@RequestParam String symbols) {
+        Set<String> requested = parseSymbols(symbols);
+        if (requested.isEmpty() || requested.size() > MAX_BATCH_SYMBOLS) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse<>(false, "Between 1 and " + MAX_BATCH_SYMBOLS + " symbols are required", null));
+        }
+        try {
+            Map<String, StockInfo> infos = stockPriceService.getStockInfos(requested);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Stock info retrieved successfully", infos));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
     @GetMapping("/info/{symbol}")
     public ResponseEntity<ApiResponse<StockInfo>> getStockInfo(@PathVariable String symbol) {
         try {
@@ -33,4 +95,45 @@ public class StockController {
                 .body(new ApiResponse<>(false, e.getMessage(), null));
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/history/{symbol}")
+    public ResponseEntity<ApiResponse<List<PricePoint>>> getPriceHistory(
+            @PathVariable String symbol,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to) {
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - TimeUnit.DAYS.toMillis(1);
+        List<PricePoint> history = tickStore.getRange(symbol, start, end);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Price history retrieved successfully", history));
+    }
+
+    @GetMapping("/candles/{symbol}")
+    public ResponseEntity<ApiResponse<List<Candle>>> getCandles(
+            @PathVariable String symbol,
+            @RequestParam(defaultValue = "1m") String resolution,
+            @RequestParam(defaultValue = "500") int limit) {
+        try {
+            List<Candle> candles = candleAggregator.getCandles(symbol,
+                CandleAggregator.Resolution.fromCode(resolution), limit);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Candles retrieved successfully", candles));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<List<StockInfo>>> searchSymbols(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<StockInfo> matches = symbolSearchService.search(q, Math.min(limit, MAX_SEARCH_RESULTS));
+        return ResponseEntity.ok(new ApiResponse<>(true, "Search completed successfully", matches));
+    }
+
+    private static Set<String> parseSymbols(String symbols) {
+        return Arrays.stream(symbols.split(","))
+            .map(String::trim)
+            .filter(symbol -> !symbol.isEmpty())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -1,14 +1,28 @@
 package Portfolio.Tracker.Controller;
 
 import Portfolio.Tracker.DTO.*;
+import Portfolio.Tracker.Service.IdempotencyService;
+import Portfolio.Tracker.Service.OrderPipelineService;
+import Portfolio.Tracker.Service.TransactionHistoryService;
+import Portfolio.Tracker.Service.TransactionHistoryService.ExportFormat;
 import Portfolio.Tracker.Service.TransactionService;
+import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
+import jakarta.validation.groups.Default;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/transaction")
@@ -16,33 +30,96 @@ import java.util.List;
 @RequiredArgsConstructor
 public class TransactionController {
     private final TransactionService transactionService;
+    private final TransactionHistoryService transactionHistoryService;
+    private final OrderPipelineService orderPipelineService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping("/buy")
     public ResponseEntity<ApiResponse<TransactionResponse>> buyStock(
             @Valid @RequestBody TransactionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication auth) {
-        try {
-            request.setType("BUY");
-            transactionService.processTransaction(request, auth.getName());
-            return ResponseEntity.ok(new ApiResponse<>(true, "Buy order executed successfully", null));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                    .body(new ApiResponse<>(false, e.getMessage(), null));
-        }
+        return idempotencyService.execute(auth.getName(), idempotencyKey, "buy", request,
+            new TypeReference<ApiResponse<TransactionResponse>>() {}, () -> {
+            try {
+                request.setType("BUY");
+                transactionService.processTransaction(request, auth.getName());
+                return ResponseEntity.ok(new ApiResponse<>(true, "Buy order executed successfully", null));
+            } catch (Exception e) {
+                return ResponseEntity.badRequest()
+                        .body(new ApiResponse<>(false, e.getMessage(), null));
+            }
+        });
     }
 
     @PostMapping("/sell")
     public ResponseEntity<ApiResponse<TransactionResponse>> sellStock(
             @Valid @RequestBody TransactionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication auth) {
-        try {
-            request.setType("SELL");
-            transactionService.processTransaction(request, auth.getName());
-            return ResponseEntity.ok(new ApiResponse<>(true, "Sell order executed successfully", null));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                    .body(new ApiResponse<>(false, e.getMessage(), null));
-        }
+        return idempotencyService.execute(auth.getName(), idempotencyKey, "sell", request,
+            new TypeReference<ApiResponse<TransactionResponse>>() {}, () -> {
+            try {
+                request.setType("SELL");
+                transactionService.processTransaction(request, auth.getName());
+                return ResponseEntity.ok(new ApiResponse<>(true, "Sell order executed successfully", null));
+            } catch (Exception e) {
+                return ResponseEntity.badRequest()
+                        .body(new ApiResponse<>(false, e.getMessage(), null));
+            }
+        });
+    }
+
+    @PostMapping("/basket")
+    public ResponseEntity<ApiResponse<List<TransactionResponse>>> executeBasket(
+            @RequestBody BasketOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication auth) {
+        return idempotencyService.execute(auth.getName(), idempotencyKey, "basket", request,
+            new TypeReference<ApiResponse<List<TransactionResponse>>>() {}, () -> {
+            try {
+                List<TransactionResponse> executed = transactionService.processBasket(request, auth.getName());
+                return ResponseEntity.ok(new ApiResponse<>(true, "Basket order executed successfully", executed));
+            } catch (Exception e) {
+                return ResponseEntity.badRequest()
+                        .body(new ApiResponse<>(false, e.getMessage(), null));
+            }
+        });
+    }
+
+    /**
+     * Queues a BUY or SELL order and returns its id at once; poll
+     * /transaction/async/{orderId} for the outcome.
+     */
+    @PostMapping("/async")
+    public ResponseEntity<ApiResponse<OrderStatus>> submitOrder(
+            @Validated({Default.class, TransactionRequest.Sided.class}) @RequestBody TransactionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication auth) {
+        return idempotencyService.execute(auth.getName(), idempotencyKey, "async", request,
+            new TypeReference<ApiResponse<OrderStatus>>() {}, () -> {
+            try {
+                OrderStatus status = orderPipelineService.submit(request, auth.getName());
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(new ApiResponse<>(true, "Order accepted", status));
+            } catch (RejectedExecutionException e) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .body(new ApiResponse<>(false, e.getMessage(), null));
+            } catch (Exception e) {
+                return ResponseEntity.badRequest()
+                        .body(new ApiResponse<>(false, e.getMessage(), null));
+            }
+        });
+    }
+
+    @GetMapping("/async/{orderId}")
+    public ResponseEntity<ApiResponse<OrderStatus>> getOrderStatus(
+            @PathVariable String orderId,
+            Authentication auth) {
+        return orderPipelineService.getStatus(orderId, auth.getName())
+                .map(status -> ResponseEntity.ok(new ApiResponse<>(true, "Order status retrieved", status)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>(false, "Order not found", null)));
     }
 
     @GetMapping("/history")
@@ -56,4 +133,56 @@ public class TransactionController {
                     .body(new ApiResponse<>(false, e.getMessage(), null));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * One page of history, newest first. Pass the returned nextCursor to get the
+     * following page.
+     */
+    @GetMapping("/history/page")
+    public ResponseEntity<ApiResponse<TransactionPage>> getTransactionPage(
+            Authentication auth,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String symbol,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            TransactionPage page = transactionHistoryService.getPage(auth.getName(),
+                new TransactionFilter(symbol, type, from, to), cursor, limit);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Transaction history retrieved", page));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    /**
+     * Streams the full (filtered) history as CSV or newline-delimited JSON.
+     */
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactionHistory(
+            Authentication auth,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String symbol,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String email = auth.getName();
+        TransactionFilter filter = new TransactionFilter(symbol, type, from, to);
+        StreamingResponseBody body = out -> transactionHistoryService.export(email, filter, exportFormat, out);
+        boolean csv = exportFormat == ExportFormat.CSV;
+        return ResponseEntity.ok()
+            .contentType(csv ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"transactions." + (csv ? "csv" : "ndjson") + "\"")
+            .body(body);
+    }
+}
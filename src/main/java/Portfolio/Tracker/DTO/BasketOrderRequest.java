@@ -0,0 +1,17 @@
+package Portfolio.Tracker.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketOrderRequest {
+    // Each leg needs stockSymbol, type (BUY or SELL) and quantity; legs run in order
+    private List<TransactionRequest> legs;
+}
@@ -0,0 +1,19 @@
+package Portfolio.Tracker.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Candle {
+    private long startTime;   // epoch millis, inclusive
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private double volume;
+}
@@ -0,0 +1,19 @@
+package Portfolio.Tracker.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OpenOrderRequest {
+    private String stockSymbol;
+    private String stockName;
+    private String side;          // BUY or SELL
+    private String orderType;     // LIMIT or STOP
+    private double triggerPrice;
+    private int quantity;
+}
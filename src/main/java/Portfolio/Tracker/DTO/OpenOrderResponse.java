@@ -0,0 +1,25 @@
+package Portfolio.Tracker.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OpenOrderResponse {
+    private Long id;
+    private String symbol;
+    private String side;
+    private String orderType;
+    private double triggerPrice;
+    private int quantity;
+    private String status;
+    private String message;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,25 @@
+package Portfolio.Tracker.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatus {
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private String orderId;
+    private State state;
+    private String symbol;
+    private String type;
+    private int quantity;
+    private String message;
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+}
@@ -23,4 +23,5 @@ public class PortfolioResponse {
     private double totalReturn;
     private String purchaseDate;
     private LocalDateTime lastUpdated;
+    private boolean stale;
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package Portfolio.Tracker.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Simulated loss distribution of a portfolio over a horizon. Losses and drawdowns are
+ * positive amounts in the portfolio's currency.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioRisk {
+    private double portfolioValue;
+    private int horizonDays;
+    private int paths;
+    private double valueAtRisk95;
+    private double valueAtRisk99;
+    private double expectedShortfall95;
+    private double expectedShortfall99;
+    private double expectedMaxDrawdown;
+    private double maxDrawdown95;
+}
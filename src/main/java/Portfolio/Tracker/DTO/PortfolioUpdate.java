@@ -0,0 +1,17 @@
+package Portfolio.Tracker.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioUpdate {
+    private List<PortfolioResponse> holdings;   // only holdings whose price changed, or all on snapshot
+    private PortfolioStats stats;
+}
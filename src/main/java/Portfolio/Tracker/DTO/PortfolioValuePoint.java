@@ -0,0 +1,20 @@
+package Portfolio.Tracker.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioValuePoint {
+    private LocalDate date;
+    private double totalValue;
+    private double totalCost;
+    private double dayChange;
+    private int positions;
+}
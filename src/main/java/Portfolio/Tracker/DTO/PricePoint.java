@@ -0,0 +1,16 @@
+package Portfolio.Tracker.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricePoint {
+    private long timestamp;   // epoch millis
+    private double price;
+    private double volume;
+}
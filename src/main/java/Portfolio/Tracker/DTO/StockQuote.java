@@ -4,7 +4,7 @@ import lombok.Data;
 import lombok.Builder;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class StockQuote {
     private double currentPrice;    // c
     private double change;         // d
@@ -14,4 +14,5 @@ public class StockQuote {
     private double openPrice;      // o
     private double previousClose;  // pc
     private long timestamp;        // t
+    private boolean stale;         // served from the last known price while Finnhub is unavailable
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package Portfolio.Tracker.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional criteria for transaction history queries; null fields do not filter.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionFilter {
+    private String symbol;
+    private String type;
+    private LocalDateTime from;   // inclusive
+    private LocalDateTime to;     // exclusive
+}
@@ -1,5 +1,9 @@
 package Portfolio.Tracker.DTO;
 
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,9 +14,24 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class TransactionRequest {
+    /**
+     * Validation group for endpoints that take the side from the body rather than the
+     * path, such as /transaction/async.
+     */
+    public interface Sided {
+    }
+
+    @NotBlank(message = "Stock symbol is required")
     private String stockSymbol;
+
     private String stockName;
+
+    @NotNull(groups = Sided.class, message = "Type is required")
+    @Pattern(regexp = "BUY|SELL", message = "Type must be BUY or SELL")
     private String type;
+
+    @Positive(message = "Quantity must be positive")
     private int quantity;
+
     private double price;
-}
\ No newline at end of file
+}
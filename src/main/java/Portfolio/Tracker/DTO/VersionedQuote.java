@@ -0,0 +1,51 @@
+package Portfolio.Tracker.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionedQuote {
+    private String symbol;
+    private String version;   // changes whenever any quote field changes
+    private StockQuote quote;
+
+    public static VersionedQuote of(String symbol, StockQuote quote) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, Double.doubleToLongBits(quote.getCurrentPrice()));
+        hash = mix(hash, Double.doubleToLongBits(quote.getChange()));
+        hash = mix(hash, Double.doubleToLongBits(quote.getDayChangePercent()));
+        hash = mix(hash, Double.doubleToLongBits(quote.getHighPrice()));
+        hash = mix(hash, Double.doubleToLongBits(quote.getLowPrice()));
+        hash = mix(hash, Double.doubleToLongBits(quote.getOpenPrice()));
+        hash = mix(hash, Double.doubleToLongBits(quote.getPreviousClose()));
+        hash = mix(hash, quote.getTimestamp());
+        hash = mix(hash, quote.isStale() ? 1 : 0);
+        return new VersionedQuote(symbol, Long.toHexString(hash), quote);
+    }
+
+    /**
+     * Version covering a whole set of quotes, in iteration order.
+     */
+    public static String combinedVersion(Iterable<VersionedQuote> quotes) {
+        long hash = 0xcbf29ce484222325L;
+        for (VersionedQuote quote : quotes) {
+            hash = mix(hash, quote.getSymbol().hashCode());
+            hash = mix(hash, Long.parseUnsignedLong(quote.getVersion(), 16));
+        }
+        return Long.toHexString(hash);
+    }
+
+    // FNV-1a over the 8 bytes of value
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,53 @@
+package Portfolio.Tracker.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * An order accepted by the asynchronous pipeline. State moves QUEUED -> RUNNING ->
+ * COMPLETED or FAILED; starting an execution stamps a fresh {@code claimToken}, and
+ * finishing it requires that token, so an execution that stalled and was requeued
+ * cannot complete the order a second time.
+ */
+@Entity
+@Data
+@Table(name = "async_orders", indexes = {
+    @Index(name = "idx_async_orders_state_submitted", columnList = "state, submitted_at")
+})
+public class AsyncOrder {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false)
+    private String symbol;
+
+    private String stockName;
+
+    @Column(nullable = false)
+    private String type;         // BUY or SELL
+
+    private int quantity;
+
+    @Column(nullable = false)
+    private String state;
+
+    @Column(columnDefinition = "text")
+    private String message;
+
+    private String claimToken;
+
+    @Column(nullable = false)
+    private LocalDateTime submittedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime completedAt;
+}
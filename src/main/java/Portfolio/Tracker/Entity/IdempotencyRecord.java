@@ -0,0 +1,34 @@
+package Portfolio.Tracker.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Durable claim on an Idempotency-Key, holding the response to replay once the first
+ * request completes. Written by IdempotencyService through JDBC.
+ */
+@Entity
+@Data
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_created_at", columnList = "createdAt"))
+public class IdempotencyRecord {
+    // User email and client key, so keys only need to be unique per user
+    @Id
+    @Column(length = 512)
+    private String id;
+
+    @Column(nullable = false)
+    private String requestHash;
+
+    @Column(nullable = false)
+    private String state;   // IN_PROGRESS or COMPLETED
+
+    private Integer statusCode;
+
+    @Column(columnDefinition = "text")
+    private String responseBody;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,51 @@
+package Portfolio.Tracker.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A resting limit or stop order. Status moves OPEN -> TRIGGERED -> FILLED or FAILED,
+ * or OPEN -> CANCELLED; every transition is a conditional update on the current status.
+ * Triggering stamps a fresh {@code claimToken}, and transitions out of TRIGGERED also
+ * require that token, so only the execution that triggered the order can finish it.
+ */
+@Entity
+@Data
+@Table(name = "open_orders", indexes = {
+    @Index(name = "idx_open_orders_status", columnList = "status"),
+    @Index(name = "idx_open_orders_user_status", columnList = "user_id, status"),
+    @Index(name = "idx_open_orders_status_updated", columnList = "status, updated_at")
+})
+public class OpenOrder {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    private String symbol;
+    private String stockName;
+    private String side;         // BUY or SELL
+    private String orderType;    // LIMIT or STOP
+    private double triggerPrice;
+    private int quantity;
+    private String status;
+
+    @Column(columnDefinition = "text")
+    private String message;
+
+    private String claimToken;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+}
@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "portfolios")
+@Table(name = "portfolios", uniqueConstraints = @UniqueConstraint(
+    name = "uk_portfolios_user_symbol", columnNames = {"user_id", "symbol"}))
 public class Portfolio {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,32 @@
+package Portfolio.Tracker.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * End-of-day valuation of one user's portfolio. Rows are written in bulk by
+ * PortfolioSnapshotService rather than through JPA.
+ */
+@Entity
+@Data
+@Table(name = "portfolio_snapshots", uniqueConstraints = @UniqueConstraint(
+    name = "uk_portfolio_snapshots_user_date", columnNames = {"user_id", "snapshot_date"}))
+public class PortfolioSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false)
+    private LocalDate snapshotDate;
+
+    private double totalValue;
+    private double totalCost;
+    private double dayChange;
+    private int positions;
+}
@@ -0,0 +1,28 @@
+package Portfolio.Tracker.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Durable copy of a company profile fetched from Finnhub, so profiles survive restarts
+ * instead of being refetched on every deploy.
+ */
+@Entity
+@Data
+@Table(name = "stock_profiles", indexes = @Index(name = "idx_stock_profiles_fetched_at", columnList = "fetchedAt"))
+public class StockProfile {
+    @Id
+    private String symbol;
+
+    private String name;
+    private String currency;
+    private String exchange;
+
+    @Column(nullable = false)
+    private LocalDateTime fetchedAt;
+
+    // Set when a refresh is attempted and cleared by a successful one
+    private LocalDateTime lastAttemptAt;
+}
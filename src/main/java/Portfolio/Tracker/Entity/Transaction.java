@@ -8,10 +8,15 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    @Index(name = "idx_transactions_user_date_id", columnList = "user_id, date, id"),
+    @Index(name = "idx_transactions_user_symbol_date", columnList = "user_id, symbol, date, id")
+})
 public class Transaction {
+    // Pooled sequence ids let Hibernate batch inserts; IDENTITY forces one insert per round trip
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -1,10 +1,14 @@
 package Portfolio.Tracker.Exception;
 
+import Portfolio.Tracker.DTO.ApiResponse;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import java.util.Map;
 import org.springframework.http.HttpStatus;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -25,6 +29,27 @@ public class GlobalExceptionHandler {
             .body(Map.of("error", ex.getMessage()));
     }
 
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<?> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        return ResponseEntity.status(ex.getStatus())
+            .body(new ApiResponse<>(false, ex.getMessage(), null));
+    }
+
+    // The bounded async request executor is full, e.g. too many exports at once
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<?> handleTaskRejected(TaskRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(new ApiResponse<>(false, "Too many concurrent downloads, please retry shortly", null));
+    }
+
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<?> handleInvalidRequest(MethodArgumentNotValidException ex) {
+        FieldError error = ex.getBindingResult().getFieldError();
+        String message = error != null ? error.getDefaultMessage() : "Invalid request";
+        return ResponseEntity.badRequest()
+            .body(new ApiResponse<>(false, message, null));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handleGeneral(Exception ex) {
         return ResponseEntity.internalServerError()
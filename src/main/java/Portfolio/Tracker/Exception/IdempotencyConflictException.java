@@ -0,0 +1,20 @@
+package Portfolio.Tracker.Exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * An Idempotency-Key that cannot be honoured: reused for a different request, or its
+ * original request is still running or failed.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+    private final HttpStatus status;
+
+    public IdempotencyConflictException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
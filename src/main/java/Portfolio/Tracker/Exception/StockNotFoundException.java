@@ -4,4 +4,8 @@ public class StockNotFoundException extends RuntimeException {
     public StockNotFoundException(Long id) {
         super("Stock not found with id: " + id);
     }
+
+    public StockNotFoundException(String symbol) {
+        super("Stock not found: " + symbol);
+    }
 }
\ No newline at end of file
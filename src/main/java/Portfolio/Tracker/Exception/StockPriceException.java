@@ -4,4 +4,8 @@ public class StockPriceException extends RuntimeException {
     public StockPriceException(String message) {
         super(message);
     }
-} 
\ No newline at end of file
+
+    public StockPriceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
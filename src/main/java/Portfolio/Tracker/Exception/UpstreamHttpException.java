@@ -0,0 +1,36 @@
+package Portfolio.Tracker.Exception;
+
+import java.time.Duration;
+
+/**
+ * Non-2xx response from the market data provider.
+ */
+public class UpstreamHttpException extends StockPriceException {
+    private final int statusCode;
+    private final Duration retryAfter;
+
+    public UpstreamHttpException(int statusCode, Duration retryAfter) {
+        super("Stock price service responded with HTTP " + statusCode);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Retry-After hint sent with the response, or {@code null} when absent.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public boolean isClientError() {
+        return statusCode >= 400 && statusCode < 500;
+    }
+
+    public boolean isRateLimited() {
+        return statusCode == 429;
+    }
+}
@@ -0,0 +1,11 @@
+package Portfolio.Tracker.Exception;
+
+/**
+ * The market data provider could not be reached, or the connection failed or timed out
+ * before a complete response was read.
+ */
+public class UpstreamUnavailableException extends StockPriceException {
+    public UpstreamUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
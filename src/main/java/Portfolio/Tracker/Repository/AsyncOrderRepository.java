@@ -0,0 +1,58 @@
+package Portfolio.Tracker.Repository;
+
+import Portfolio.Tracker.Entity.AsyncOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AsyncOrderRepository extends JpaRepository<AsyncOrder, String> {
+    Optional<AsyncOrder> findByIdAndUserEmail(String id, String email);
+
+    @Query("select o from AsyncOrder o join fetch o.user where o.state = 'QUEUED' and o.submittedAt < :cutoff "
+        + "order by o.submittedAt")
+    List<AsyncOrder> findQueuedBefore(LocalDateTime cutoff, Pageable page);
+
+    /**
+     * QUEUED to RUNNING, stamping the claim token of the execution that runs it.
+     *
+     * @return 1 if this execution claimed the order, 0 if it was no longer queued
+     */
+    @Transactional
+    @Modifying
+    @Query("update AsyncOrder o set o.state = 'RUNNING', o.claimToken = :token, o.updatedAt = :now "
+        + "where o.id = :id and o.state = 'QUEUED'")
+    int claim(String id, String token, LocalDateTime now);
+
+    /**
+     * Finishes a RUNNING order, only if it is still held under the given claim token.
+     *
+     * @return 1 if the order was finished, 0 if the claim was lost
+     */
+    @Transactional
+    @Modifying
+    @Query("update AsyncOrder o set o.state = :to, o.message = :message, o.claimToken = null, "
+        + "o.updatedAt = :now, o.completedAt = :now where o.id = :id and o.state = 'RUNNING' and o.claimToken = :token")
+    int finish(String id, String token, String to, String message, LocalDateTime now);
+
+    /**
+     * Puts orders that have been RUNNING since before the cutoff back in the queue.
+     */
+    @Transactional
+    @Modifying
+    @Query("update AsyncOrder o set o.state = 'QUEUED', o.claimToken = null, o.updatedAt = :now "
+        + "where o.state = 'RUNNING' and o.updatedAt < :cutoff")
+    int requeueRunningBefore(LocalDateTime cutoff, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from AsyncOrder o where o.state in ('COMPLETED', 'FAILED') and o.completedAt < :cutoff")
+    int deleteFinishedBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,60 @@
+package Portfolio.Tracker.Repository;
+
+import Portfolio.Tracker.Entity.OpenOrder;
+import Portfolio.Tracker.Entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OpenOrderRepository extends JpaRepository<OpenOrder, Long> {
+    List<OpenOrder> findByUserOrderByCreatedAtDesc(User user);
+    List<OpenOrder> findByUserAndStatusOrderByCreatedAtDesc(User user, String status);
+
+    @Query("select o from OpenOrder o join fetch o.user where o.status = :status")
+    List<OpenOrder> findWithUserByStatus(String status);
+
+    @Query("select distinct o.symbol from OpenOrder o where o.status = 'OPEN'")
+    List<String> findDistinctOpenSymbols();
+
+    @Query("select o from OpenOrder o join fetch o.user where o.status = 'TRIGGERED' and o.updatedAt < :cutoff")
+    List<OpenOrder> findTriggeredBefore(LocalDateTime cutoff);
+
+    /**
+     * OPEN to TRIGGERED, stamping the claim token of the execution that will fill it.
+     *
+     * @return 1 if this execution claimed the order, 0 if it was no longer open
+     */
+    @Transactional
+    @Modifying
+    @Query("update OpenOrder o set o.status = 'TRIGGERED', o.claimToken = :token, o.message = null, "
+        + "o.updatedAt = :now where o.id = :id and o.status = 'OPEN'")
+    int claim(Long id, String token, LocalDateTime now);
+
+    /**
+     * Moves a TRIGGERED order on, only if it is still held under the given claim token.
+     *
+     * @return 1 if the transition happened, 0 if the claim was lost
+     */
+    @Transactional
+    @Modifying
+    @Query("update OpenOrder o set o.status = :to, o.message = :message, o.claimToken = null, o.updatedAt = :now "
+        + "where o.id = :id and o.status = 'TRIGGERED' and o.claimToken = :token")
+    int release(Long id, String token, String to, String message, LocalDateTime now);
+
+    /**
+     * Moves the order to a new status only if it is still in the expected one.
+     *
+     * @return 1 if the transition happened, 0 if another actor got there first
+     */
+    @Transactional
+    @Modifying
+    @Query("update OpenOrder o set o.status = :to, o.message = :message, o.updatedAt = :now "
+        + "where o.id = :id and o.status = :from")
+    int transition(Long id, String from, String to, String message, LocalDateTime now);
+}
@@ -3,8 +3,13 @@ package Portfolio.Tracker.Repository;
 import Portfolio.Tracker.Entity.Portfolio;
 import Portfolio.Tracker.Entity.User;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +17,36 @@ import java.util.Optional;
 public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
     Optional<Portfolio> findByUserAndSymbol(User user, String symbol);
     List<Portfolio> findByUser(User user);
+
+    /**
+     * The user's position in the symbol, row-locked until the surrounding transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Portfolio p where p.user.id = :userId and p.symbol = :symbol")
+    Optional<Portfolio> findForUpdate(Long userId, String symbol);
+
+    /**
+     * The user's positions in the symbols, row-locked in symbol order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Portfolio p where p.user.id = :userId and p.symbol in :symbols order by p.symbol")
+    List<Portfolio> findAllForUpdate(Long userId, Collection<String> symbols);
+
+    /**
+     * Creates an empty position unless one exists, without failing when a concurrent
+     * trade creates it first. The only conflict possible is on uk_portfolios_user_symbol,
+     * so no conflict target is named (which also keeps the statement valid on H2).
+     */
+    @Modifying
+    @Query(value = "insert into portfolios (user_id, symbol, name, quantity, average_price, current_price, "
+        + "day_change_percent, high_price, low_price, open_price, previous_close, total_value, purchase_date, last_updated) "
+        + "values (:userId, :symbol, :name, 0, 0, 0, 0, 0, 0, 0, 0, 0, now(), now()) "
+        + "on conflict do nothing", nativeQuery = true)
+    void insertEmptyIfAbsent(Long userId, String symbol, String name);
+
+    @Query("select distinct p.symbol from Portfolio p where p.quantity > 0")
+    List<String> findDistinctHeldSymbols();
+
+    @Query("select p from Portfolio p join fetch p.user u where u.email in :emails")
+    List<Portfolio> findByUserEmailIn(Collection<String> emails);
 }
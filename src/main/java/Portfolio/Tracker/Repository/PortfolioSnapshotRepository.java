@@ -0,0 +1,14 @@
+package Portfolio.Tracker.Repository;
+
+import Portfolio.Tracker.Entity.PortfolioSnapshot;
+import Portfolio.Tracker.Entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface PortfolioSnapshotRepository extends JpaRepository<PortfolioSnapshot, Long> {
+    List<PortfolioSnapshot> findByUserAndSnapshotDateGreaterThanEqualOrderBySnapshotDateAsc(User user, LocalDate from);
+}
@@ -0,0 +1,29 @@
+package Portfolio.Tracker.Repository;
+
+import Portfolio.Tracker.Entity.StockProfile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockProfileRepository extends JpaRepository<StockProfile, String> {
+    /**
+     * Profiles older than the cutoff, oldest first, skipping those whose last refresh
+     * attempt (still unsuccessful) was made after {@code retryCutoff}.
+     */
+    @Query("select p.symbol from StockProfile p where p.fetchedAt < :cutoff "
+        + "and (p.lastAttemptAt is null or p.lastAttemptAt < :retryCutoff) order by p.fetchedAt")
+    List<String> findSymbolsToRefresh(LocalDateTime cutoff, LocalDateTime retryCutoff, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update StockProfile p set p.lastAttemptAt = :now where p.symbol in :symbols")
+    int markRefreshAttempted(Collection<String> symbols, LocalDateTime now);
+}
@@ -49,6 +49,7 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .requestMatchers("/auth/**", "/oauth2/**", "/error").permitAll()
+                        .requestMatchers("/actuator/health/**").permitAll()
 
                         .anyRequest().authenticated()
                 )
@@ -73,7 +74,8 @@ public class SecurityConfig {
         configuration.setAllowedHeaders(Arrays.asList(
             "Authorization",
             "Content-Type",
-            "Origin"
+            "Origin",
+            "Idempotency-Key"
         ));
         configuration.setAllowCredentials(true);
 
@@ -0,0 +1,125 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prefetches quotes and company profiles for every held symbol when the application
+ * starts, so the first requests after a deploy do not all miss the caches.
+ *
+ * <p>Quotes are loaded in the background lane of the rate limiter and profiles in one
+ * bulk read through the stored profiles. Until the configured fraction of them has
+ * loaded (or the warm-up times out) this indicator reports OUT_OF_SERVICE, which keeps
+ * the readiness probe, and with it load balancer traffic, away from the instance.
+ */
+@Service
+@Slf4j
+public class CacheWarmupService implements HealthIndicator {
+    private final PortfolioRepository portfolioRepository;
+    private final StockPriceService stockPriceService;
+
+    private final AtomicInteger warmed = new AtomicInteger();
+    private final AtomicInteger settled = new AtomicInteger();
+    private volatile int target;
+    private volatile boolean complete;
+    private volatile String outcome = "pending";
+
+    @Value("${cache.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.warmup.min-fraction:0.9}")
+    private double minFraction;
+
+    @Value("${cache.warmup.timeout-ms:60000}")
+    private long timeoutMs;
+
+    public CacheWarmupService(PortfolioRepository portfolioRepository, StockPriceService stockPriceService) {
+        this.portfolioRepository = portfolioRepository;
+        this.stockPriceService = stockPriceService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            finish("disabled");
+            return;
+        }
+
+        List<String> symbols;
+        try {
+            symbols = portfolioRepository.findDistinctHeldSymbols();
+        } catch (Exception e) {
+            log.warn("Could not load held symbols for cache warm-up: {}", e.getMessage());
+            finish("skipped");
+            return;
+        }
+        if (symbols.isEmpty()) {
+            finish("nothing to warm");
+            return;
+        }
+
+        // One quote and one profile per symbol
+        target = symbols.size() * 2;
+        long started = System.currentTimeMillis();
+        log.info("Warming caches for {} held symbols", symbols.size());
+
+        for (String symbol : symbols) {
+            stockPriceService.refreshQuote(symbol)
+                .whenComplete((quote, error) -> record(error == null ? 1 : 0, 1, started));
+        }
+        stockPriceService.prefetchStockInfos(symbols)
+            .whenComplete((infos, error) -> record(error == null ? infos.size() : 0, symbols.size(), started));
+
+        CompletableFuture.delayedExecutor(timeoutMs, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!complete) {
+                log.warn("Cache warm-up timed out after {} ms with {} of {} entries loaded",
+                    timeoutMs, warmed.get(), target);
+                finish("timed out");
+            }
+        });
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = complete ? Health.up() : Health.outOfService();
+        return health
+            .withDetail("status", outcome)
+            .withDetail("warmed", warmed.get())
+            .withDetail("target", target)
+            .build();
+    }
+
+    private void record(int loaded, int attempted, long started) {
+        int warmedNow = warmed.addAndGet(loaded);
+        int settledNow = settled.addAndGet(attempted);
+        if (complete) {
+            return;
+        }
+        if (warmedNow >= Math.ceil(target * minFraction)) {
+            log.info("Cache warm-up reached {} of {} entries in {} ms",
+                warmedNow, target, System.currentTimeMillis() - started);
+            finish("warm");
+        } else if (settledNow >= target) {
+            log.warn("Cache warm-up finished below the target fraction: {} of {} entries loaded", warmedNow, target);
+            finish("partial");
+        }
+    }
+
+    private synchronized void finish(String result) {
+        if (!complete) {
+            outcome = result;
+            complete = true;
+        }
+    }
+}
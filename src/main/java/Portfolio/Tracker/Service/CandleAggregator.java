@@ -0,0 +1,172 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.Candle;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Maintains OHLCV candles per symbol for a fixed set of resolutions, updated in O(1)
+ * per price. Each symbol/resolution pair keeps a ring buffer of the most recent
+ * candles in primitive arrays, so memory per symbol is bounded regardless of how many
+ * ticks arrive. Candle boundaries are aligned to UTC, and chart requests are served
+ * from memory.
+ *
+ * <p>Symbols that see no ticks and no chart requests for
+ * {@code market.candles.idle-ttl-hours} are dropped, as are the least recently used
+ * ones beyond {@code market.candles.max-symbols}. A symbol whose buffers have all
+ * filled holds 4,541 candles of 48 bytes, about 218KB, so the default cap of 250
+ * symbols bounds the aggregator at roughly 55MB.
+ */
+@Component
+public class CandleAggregator implements PriceUpdateListener {
+
+    public enum Resolution {
+        ONE_MINUTE("1m", Duration.ofMinutes(1), 24 * 60),
+        FIVE_MINUTES("5m", Duration.ofMinutes(5), 7 * 24 * 12),
+        ONE_HOUR("1h", Duration.ofHours(1), 30 * 24),
+        ONE_DAY("1d", Duration.ofDays(1), 365);
+
+        private final String code;
+        private final long millis;
+        private final int capacity;
+
+        Resolution(String code, Duration length, int capacity) {
+            this.code = code;
+            this.millis = length.toMillis();
+            this.capacity = capacity;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public static Resolution fromCode(String code) {
+            for (Resolution resolution : values()) {
+                if (resolution.code.equalsIgnoreCase(code)) {
+                    return resolution;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported resolution: " + code);
+        }
+    }
+
+    private final Cache<String, Series[]> series;
+
+    public CandleAggregator(@Value("${market.candles.idle-ttl-hours:24}") long idleTtlHours,
+                            @Value("${market.candles.max-symbols:250}") long maxSymbols) {
+        this.series = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(idleTtlHours))
+            .maximumSize(maxSymbols)
+            .build();
+    }
+
+    @Override
+    public void onPriceUpdate(String symbol, double price, double volume, long timestamp) {
+        Series[] all = series.get(symbol, key -> {
+            Series[] created = new Series[Resolution.values().length];
+            for (Resolution resolution : Resolution.values()) {
+                created[resolution.ordinal()] = new Series(resolution);
+            }
+            return created;
+        });
+        for (Series candles : all) {
+            candles.add(price, volume, timestamp);
+        }
+    }
+
+    /**
+     * Candles for the symbol at the given resolution, oldest first. The last candle is
+     * the one currently forming.
+     */
+    public List<Candle> getCandles(String symbol, Resolution resolution, int limit) {
+        Series[] all = series.getIfPresent(symbol);
+        if (all == null) {
+            return Collections.emptyList();
+        }
+        return all[resolution.ordinal()].snapshot(limit);
+    }
+
+    // Arrays start small and double until they reach the resolution's capacity; they
+    // only wrap around once full, so growing never has to reorder the ring
+    private static final class Series {
+        private static final int INITIAL_CAPACITY = 32;
+
+        private final long length;
+        private final int maxCapacity;
+        private int capacity;
+        private long[] start;
+        private double[] open;
+        private double[] high;
+        private double[] low;
+        private double[] close;
+        private double[] volume;
+        private int head = -1;   // slot of the current candle
+        private int size;
+
+        Series(Resolution resolution) {
+            this.length = resolution.millis;
+            this.maxCapacity = resolution.capacity;
+            this.capacity = Math.min(INITIAL_CAPACITY, maxCapacity);
+            this.start = new long[capacity];
+            this.open = new double[capacity];
+            this.high = new double[capacity];
+            this.low = new double[capacity];
+            this.close = new double[capacity];
+            this.volume = new double[capacity];
+        }
+
+        synchronized void add(double price, double tickVolume, long timestamp) {
+            long bucket = timestamp - Math.floorMod(timestamp, length);
+            if (head >= 0 && bucket < start[head]) {
+                // Late tick for a candle that is already closed
+                return;
+            }
+            if (head < 0 || bucket > start[head]) {
+                if (size == capacity && capacity < maxCapacity) {
+                    grow();
+                }
+                head = (head + 1) % capacity;
+                size = Math.min(size + 1, capacity);
+                start[head] = bucket;
+                open[head] = price;
+                high[head] = price;
+                low[head] = price;
+                close[head] = price;
+                volume[head] = tickVolume;
+                return;
+            }
+            high[head] = Math.max(high[head], price);
+            low[head] = Math.min(low[head], price);
+            close[head] = price;
+            volume[head] += tickVolume;
+        }
+
+        private void grow() {
+            capacity = Math.min(capacity * 2, maxCapacity);
+            start = Arrays.copyOf(start, capacity);
+            open = Arrays.copyOf(open, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            close = Arrays.copyOf(close, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+        }
+
+        synchronized List<Candle> snapshot(int limit) {
+            int count = Math.min(size, Math.max(limit, 0));
+            List<Candle> candles = new ArrayList<>(count);
+            for (int i = count - 1; i >= 0; i--) {
+                int slot = Math.floorMod(head - i, capacity);
+                candles.add(new Candle(start[slot], open[slot], high[slot], low[slot], close[slot], volume[slot]));
+            }
+            return candles;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.StockInfo;
+import Portfolio.Tracker.DTO.StockQuote;
+import Portfolio.Tracker.Exception.StockNotFoundException;
+import Portfolio.Tracker.Exception.StockPriceException;
+import Portfolio.Tracker.Exception.UpstreamHttpException;
+import Portfolio.Tracker.Exception.UpstreamUnavailableException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Finnhub REST client on the JDK {@link HttpClient}, which keeps a pool of keep-alive
+ * connections and negotiates HTTP/2 where the server supports it. Responses are decoded
+ * token by token straight from the response stream into {@link StockQuote} and
+ * {@link StockInfo}, without materialising a JSON tree.
+ *
+ * <p>Failures are typed so callers can tell an unhealthy upstream from a bad answer:
+ * connection errors and timeouts raise {@link UpstreamUnavailableException}, non-2xx
+ * responses {@link UpstreamHttpException}, an empty profile (Finnhub answers
+ * {@code {}} for unknown symbols) {@link StockNotFoundException}, and a malformed body
+ * a plain {@link StockPriceException}.
+ */
+@Component
+public class FinnhubClient {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    private final JsonFactory jsonFactory;
+
+    @Value("${finnhub.api.base-url}")
+    private String apiBaseUrl;
+
+    @Value("${finnhub.api.key}")
+    private String apiKey;
+
+    public FinnhubClient(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public StockQuote fetchQuote(String symbol) {
+        try (InputStream body = get("/quote", symbol);
+             JsonParser parser = jsonFactory.createParser(body)) {
+            expectObject(parser);
+            StockQuote.StockQuoteBuilder quote = StockQuote.builder();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "c" -> quote.currentPrice(parser.getValueAsDouble());
+                    case "d" -> quote.change(parser.getValueAsDouble());
+                    case "dp" -> quote.dayChangePercent(parser.getValueAsDouble());
+                    case "h" -> quote.highPrice(parser.getValueAsDouble());
+                    case "l" -> quote.lowPrice(parser.getValueAsDouble());
+                    case "o" -> quote.openPrice(parser.getValueAsDouble());
+                    case "pc" -> quote.previousClose(parser.getValueAsDouble());
+                    case "t" -> quote.timestamp(parser.getValueAsLong());
+                    default -> parser.skipChildren();
+                }
+            }
+            return quote.build();
+        } catch (JsonProcessingException e) {
+            throw new StockPriceException("Invalid quote data received", e);
+        } catch (IOException e) {
+            throw new UpstreamUnavailableException("Failed to read stock quote", e);
+        }
+    }
+
+    public StockInfo fetchProfile(String symbol) {
+        try (InputStream body = get("/stock/profile2", symbol);
+             JsonParser parser = jsonFactory.createParser(body)) {
+            expectObject(parser);
+            StockInfo info = new StockInfo();
+            info.setSymbol(symbol);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "name" -> info.setName(value == JsonToken.VALUE_NULL ? null : parser.getText());
+                    case "currency" -> info.setCurrency(value == JsonToken.VALUE_NULL ? null : parser.getText());
+                    case "exchange" -> info.setExchange(value == JsonToken.VALUE_NULL ? null : parser.getText());
+                    default -> parser.skipChildren();
+                }
+            }
+            if (info.getName() == null) {
+                throw new StockNotFoundException(symbol);
+            }
+            return info;
+        } catch (JsonProcessingException e) {
+            throw new StockPriceException("Invalid stock info received", e);
+        } catch (IOException e) {
+            throw new UpstreamUnavailableException("Failed to read stock info", e);
+        }
+    }
+
+    private InputStream get(String path, String symbol) {
+        URI uri = URI.create(String.format("%s%s?symbol=%s&token=%s", apiBaseUrl, path,
+            URLEncoder.encode(symbol, StandardCharsets.UTF_8), apiKey));
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .timeout(REQUEST_TIMEOUT)
+            .header("Accept", "application/json")
+            .GET()
+            .build();
+
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            throw new UpstreamUnavailableException("Failed to reach stock price service", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StockPriceException("Interrupted while calling stock price service", e);
+        }
+
+        if (response.statusCode() != 200) {
+            closeQuietly(response.body());
+            throw new UpstreamHttpException(response.statusCode(), parseRetryAfter(response));
+        }
+        return response.body();
+    }
+
+    private static void expectObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object");
+        }
+    }
+
+    private static Duration parseRetryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After")
+            .map(String::trim)
+            .filter(value -> value.chars().allMatch(Character::isDigit) && !value.isEmpty())
+            .map(value -> Duration.ofSeconds(Long.parseLong(value)))
+            .orElse(null);
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException ignored) {
+            // Nothing useful to do; the connection is discarded
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.Exception.StockPriceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket shared by every outbound Finnhub call. Interactive requests always go
+ * ahead of background work (refreshes, warm-up): background callers only take a token
+ * when no interactive caller is waiting.
+ *
+ * <p>The refill rate adapts to what the upstream tells us. A 429 halves the rate and
+ * blocks the bucket for the Retry-After period (or an exponential backoff when the
+ * header is missing); each successful call then restores a slice of the configured rate.
+ */
+@Component
+@Slf4j
+public class FinnhubRateLimiter {
+    private static final long MAX_BACKOFF_MS = 60_000;
+    private static final double MIN_RATE_FRACTION = 0.1;
+    private static final double RECOVERY_FRACTION = 0.05;
+
+    public enum Priority { INTERACTIVE, BACKGROUND }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition tokensAvailable = lock.newCondition();
+
+    private final double configuredRatePerSecond;
+    private final double capacity;
+    private final Map<Priority, Long> maxWaitNanos = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicInteger> waiting = new EnumMap<>(Priority.class);
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+    private final Counter throttled;
+
+    private double ratePerSecond;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long blockedUntilNanos;
+    private int consecutiveThrottles;
+
+    public FinnhubRateLimiter(@Value("${finnhub.rate-limit.requests-per-minute:60}") int requestsPerMinute,
+                              @Value("${finnhub.rate-limit.burst:10}") int burst,
+                              @Value("${finnhub.rate-limit.interactive-max-wait-ms:5000}") long interactiveMaxWaitMs,
+                              @Value("${finnhub.rate-limit.background-max-wait-ms:30000}") long backgroundMaxWaitMs,
+                              MeterRegistry meterRegistry) {
+        this.configuredRatePerSecond = requestsPerMinute / 60.0;
+        this.ratePerSecond = configuredRatePerSecond;
+        this.capacity = burst;
+        this.tokens = burst;
+        this.maxWaitNanos.put(Priority.INTERACTIVE, TimeUnit.MILLISECONDS.toNanos(interactiveMaxWaitMs));
+        this.maxWaitNanos.put(Priority.BACKGROUND, TimeUnit.MILLISECONDS.toNanos(backgroundMaxWaitMs));
+
+        for (Priority priority : Priority.values()) {
+            String lane = priority.name().toLowerCase();
+            AtomicInteger queued = new AtomicInteger();
+            waiting.put(priority, queued);
+            Gauge.builder("finnhub.ratelimit.queue", queued, AtomicInteger::get)
+                .description("Callers waiting for a Finnhub request token")
+                .tag("lane", lane)
+                .register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("finnhub.ratelimit.wait")
+                .description("Time spent waiting for a Finnhub request token")
+                .tag("lane", lane)
+                .register(meterRegistry));
+        }
+        Gauge.builder("finnhub.ratelimit.rate", this, limiter -> limiter.currentRatePerSecond() * 60)
+            .description("Current adaptive request budget per minute")
+            .register(meterRegistry);
+        this.throttled = Counter.builder("finnhub.ratelimit.throttled")
+            .description("429 responses received from Finnhub")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Blocks until a request token is available for the given lane.
+     *
+     * @throws StockPriceException if no token becomes available within the lane's maximum wait
+     */
+    public void acquire(Priority priority) {
+        long start = System.nanoTime();
+        long deadline = start + maxWaitNanos.get(priority);
+        AtomicInteger queued = waiting.get(priority);
+
+        lock.lock();
+        queued.incrementAndGet();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                refill(now);
+                boolean yieldToInteractive = priority == Priority.BACKGROUND
+                    && waiting.get(Priority.INTERACTIVE).get() > 0;
+
+                if (!yieldToInteractive && now >= blockedUntilNanos && tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+
+                long waitNanos = Math.max(blockedUntilNanos - now,
+                    (long) ((1 - tokens) / ratePerSecond * 1_000_000_000L));
+                waitNanos = Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1));
+                if (now + waitNanos > deadline) {
+                    throw new StockPriceException("Stock price service is busy, please retry shortly");
+                }
+                tokensAvailable.awaitNanos(waitNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StockPriceException("Interrupted while waiting for stock price service");
+        } finally {
+            queued.decrementAndGet();
+            tokensAvailable.signalAll();
+            lock.unlock();
+            waitTimers.get(priority).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void onSuccess() {
+        lock.lock();
+        try {
+            consecutiveThrottles = 0;
+            if (ratePerSecond < configuredRatePerSecond) {
+                refill(System.nanoTime());
+                ratePerSecond = Math.min(configuredRatePerSecond,
+                    ratePerSecond + configuredRatePerSecond * RECOVERY_FRACTION);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a 429 from the upstream.
+     *
+     * @param retryAfter the server's Retry-After hint, or {@code null} when absent
+     */
+    public void onThrottled(Duration retryAfter) {
+        throttled.increment();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            refill(now);
+            consecutiveThrottles++;
+            long backoffMs = retryAfter != null
+                ? retryAfter.toMillis()
+                : Math.min(MAX_BACKOFF_MS, 1000L << Math.min(consecutiveThrottles - 1, 6));
+            blockedUntilNanos = Math.max(blockedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(backoffMs));
+            ratePerSecond = Math.max(configuredRatePerSecond * MIN_RATE_FRACTION, ratePerSecond / 2);
+            tokens = 0;
+            log.warn("Finnhub rate limit hit, backing off {} ms at {} requests/min",
+                backoffMs, Math.round(ratePerSecond * 60));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double currentRatePerSecond() {
+        lock.lock();
+        try {
+            return ratePerSecond;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // No tokens accrue while the bucket is blocked by a backoff
+    private void refill(long now) {
+        long from = Math.max(lastRefillNanos, blockedUntilNanos);
+        if (now > from) {
+            double elapsedSeconds = (now - from) / 1_000_000_000.0;
+            tokens = Math.min(capacity, tokens + elapsedSeconds * ratePerSecond);
+        }
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,279 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.ApiResponse;
+import Portfolio.Tracker.Exception.IdempotencyConflictException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Makes write endpoints safe to retry with an {@code Idempotency-Key} header.
+ *
+ * <p>The first request for a key claims it with an insert into
+ * {@code idempotency_keys} that does nothing on conflict, so only one request across all
+ * instances executes. Its response is stored in the same database transaction as the
+ * trade it performed, and later requests with the key get that response replayed.
+ * Requests for a key already executing in this instance wait on the first one's
+ * in-memory future instead of polling the table. Failed requests release the key so
+ * they can be retried, as nothing was written.
+ *
+ * <p>The claim commits on its own, so an instance that dies mid-request leaves its key
+ * IN_PROGRESS. A claim older than {@code idempotency.claim-timeout-ms} is presumed
+ * abandoned and the next request with the key takes it over by moving
+ * {@code created_at}, the claim time. The original owner completes or releases the key
+ * only while the claim time is still its own, so if it was merely slow its trade rolls
+ * back instead of executing alongside the new owner's.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    private static final Duration KEY_RETENTION = Duration.ofHours(24);
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final String COMPLETED = "COMPLETED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    // Completed and in-flight executions in this instance, keyed like the table
+    private final Cache<String, CompletableFuture<StoredResponse>> executions = Caffeine.newBuilder()
+        .expireAfterWrite(KEY_RETENTION)
+        .maximumSize(100_000)
+        .build();
+
+    @Value("${idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    @Value("${idempotency.claim-timeout-ms:120000}")
+    private long claimTimeoutMs;
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Runs the action once per user and key and returns its response, replaying the
+     * stored response for repeated keys. Without a key the action simply runs.
+     *
+     * @param request the request body, used to reject a key reused for a different request
+     */
+    public <T> ResponseEntity<ApiResponse<T>> execute(String email, String key, String operation, Object request,
+                                                      TypeReference<ApiResponse<T>> responseType,
+                                                      Supplier<ResponseEntity<ApiResponse<T>>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > 255) {
+            return ResponseEntity.badRequest()
+                .body(new ApiResponse<>(false, "Idempotency-Key must be at most 255 characters", null));
+        }
+
+        String id = email + "|" + key;
+        String requestHash = fingerprint(operation, request);
+        CompletableFuture<StoredResponse> execution = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = executions.asMap().putIfAbsent(id, execution);
+        if (existing != null) {
+            return replay(awaitExecution(existing), requestHash, responseType);
+        }
+
+        try {
+            return claimAndRun(id, requestHash, execution, responseType, action);
+        } catch (RuntimeException e) {
+            executions.invalidate(id);
+            execution.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpiredKeys() {
+        int deleted = jdbcTemplate.update("delete from idempotency_keys where created_at < ?",
+            Timestamp.valueOf(LocalDateTime.now().minus(KEY_RETENTION)));
+        if (deleted > 0) {
+            log.debug("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private <T> ResponseEntity<ApiResponse<T>> claimAndRun(String id, String requestHash,
+                                                         CompletableFuture<StoredResponse> execution,
+                                                         TypeReference<ApiResponse<T>> responseType,
+                                                         Supplier<ResponseEntity<ApiResponse<T>>> action) {
+        // Stored at microsecond precision, so the value can be matched again later
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Timestamp claimedAt = Timestamp.valueOf(now);
+        // The primary key is the only possible conflict, so none is named
+        int claimed = jdbcTemplate.update(
+            "insert into idempotency_keys (id, request_hash, state, created_at) values (?, ?, ?, ?) "
+                + "on conflict do nothing",
+            id, requestHash, IN_PROGRESS, claimedAt);
+        if (claimed == 0) {
+            claimed = jdbcTemplate.update(
+                "update idempotency_keys set request_hash = ?, created_at = ? "
+                    + "where id = ? and state = ? and created_at < ?",
+                requestHash, claimedAt, id, IN_PROGRESS,
+                Timestamp.valueOf(now.minus(claimTimeoutMs, ChronoUnit.MILLIS)));
+            if (claimed > 0) {
+                log.warn("Took over an abandoned Idempotency-Key claim");
+            }
+        }
+        if (claimed == 0) {
+            StoredResponse stored = awaitStored(id);
+            execution.complete(stored);
+            return replay(stored, requestHash, responseType);
+        }
+
+        List<ResponseEntity<ApiResponse<T>>> response = new ArrayList<>(1);
+        StoredResponse stored;
+        try {
+            // The trade and the stored response commit together
+            stored = transactionTemplate.execute(status -> {
+                response.add(action.get());
+                ResponseEntity<ApiResponse<T>> result = response.get(0);
+                if (!result.getStatusCode().is2xxSuccessful()) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+                StoredResponse completed = new StoredResponse(result.getStatusCode().value(),
+                    toJson(result.getBody()), requestHash);
+                int updated = jdbcTemplate.update(
+                    "update idempotency_keys set state = ?, status_code = ?, response_body = ? "
+                        + "where id = ? and state = ? and created_at = ?",
+                    COMPLETED, completed.statusCode(), completed.body(), id, IN_PROGRESS, claimedAt);
+                if (updated == 0) {
+                    // Taken over as abandoned while running; undo this execution's work
+                    throw new IdempotencyConflictException(HttpStatus.CONFLICT,
+                        "A request with this Idempotency-Key is still in progress");
+                }
+                return completed;
+            });
+        } catch (RuntimeException e) {
+            release(id, claimedAt);
+            throw e;
+        }
+
+        if (stored == null) {
+            // Nothing was written, so the key is released and the request may be retried
+            release(id, claimedAt);
+            executions.invalidate(id);
+            execution.completeExceptionally(
+                new IdempotencyConflictException(HttpStatus.CONFLICT, "The original request failed, please retry"));
+            return response.get(0);
+        }
+        execution.complete(stored);
+        return response.get(0);
+    }
+
+    private void release(String id, Timestamp claimedAt) {
+        try {
+            jdbcTemplate.update("delete from idempotency_keys where id = ? and state = ? and created_at = ?",
+                id, IN_PROGRESS, claimedAt);
+        } catch (Exception e) {
+            log.warn("Could not release idempotency key: {}", e.getMessage());
+        }
+    }
+
+    // Another instance holds the key: wait for it to store its response
+    private StoredResponse awaitStored(String id) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+        while (true) {
+            List<StoredResponse> rows = jdbcTemplate.query(
+                "select state, status_code, response_body, request_hash from idempotency_keys where id = ?",
+                (rs, rowNum) -> COMPLETED.equals(rs.getString("state"))
+                    ? new StoredResponse(rs.getInt("status_code"), rs.getString("response_body"), rs.getString("request_hash"))
+                    : null,
+                id);
+            if (rows.isEmpty()) {
+                throw new IdempotencyConflictException(HttpStatus.CONFLICT, "The original request failed, please retry");
+            }
+            if (rows.get(0) != null) {
+                return rows.get(0);
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IdempotencyConflictException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyConflictException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+            }
+        }
+    }
+
+    private StoredResponse awaitExecution(CompletableFuture<StoredResponse> execution) {
+        try {
+            return execution.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+        } catch (Exception e) {
+            throw new IdempotencyConflictException(HttpStatus.CONFLICT, "The original request failed, please retry");
+        }
+    }
+
+    private <T> ResponseEntity<ApiResponse<T>> replay(StoredResponse stored, String requestHash,
+                                                     TypeReference<ApiResponse<T>> responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyConflictException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Idempotency-Key was already used for a different request");
+        }
+        try {
+            return ResponseEntity.status(stored.statusCode())
+                .body(objectMapper.readValue(stored.body(), responseType));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored response could not be read", e);
+        }
+    }
+
+    private String fingerprint(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new RuntimeException("Could not fingerprint request", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Response could not be stored", e);
+        }
+    }
+
+    private record StoredResponse(int statusCode, String body, String requestHash) {
+    }
+}
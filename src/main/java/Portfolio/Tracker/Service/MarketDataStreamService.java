@@ -0,0 +1,216 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.Repository.OpenOrderRepository;
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams trade updates for every held symbol, and every symbol with an open order,
+ * from the Finnhub WebSocket feed into the {@link PriceBook} (through the
+ * {@link PriceUpdatePublisher}). The connection is re-established with exponential
+ * backoff and all subscriptions are replayed after each reconnect. Messages are pulled
+ * one at a time ({@code request(1)}) and each tick only overwrites the symbol's last
+ * trade, so a burst from the feed never queues up more than one frame in memory.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "finnhub.stream.enabled", havingValue = "true")
+public class MarketDataStreamService {
+    private static final long MAX_BACKOFF_MS = 60_000;
+
+    private final PriceUpdatePublisher priceUpdatePublisher;
+    private final PortfolioRepository portfolioRepository;
+    private final OpenOrderRepository openOrderRepository;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ScheduledExecutorService reconnectScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "market-stream-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    private volatile WebSocket webSocket;
+    private CompletableFuture<WebSocket> sendChain = CompletableFuture.completedFuture(null);
+    private int reconnectAttempts;
+    private volatile boolean stopped;
+
+    @Value("${finnhub.stream.url:wss://ws.finnhub.io}")
+    private String streamUrl;
+
+    @Value("${finnhub.api.key}")
+    private String apiKey;
+
+    public MarketDataStreamService(PriceUpdatePublisher priceUpdatePublisher, PortfolioRepository portfolioRepository,
+                                   OpenOrderRepository openOrderRepository, ObjectMapper objectMapper) {
+        this.priceUpdatePublisher = priceUpdatePublisher;
+        this.portfolioRepository = portfolioRepository;
+        this.openOrderRepository = openOrderRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        syncSubscriptions();
+        connect();
+    }
+
+    /**
+     * Aligns the subscription set with the symbols currently held or awaited by open
+     * orders, subscribing to new ones and dropping symbols nobody watches anymore.
+     */
+    @Scheduled(fixedDelayString = "${finnhub.stream.resubscribe-interval-ms:30000}")
+    public void syncSubscriptions() {
+        Set<String> watched;
+        try {
+            watched = new HashSet<>(portfolioRepository.findDistinctHeldSymbols());
+            watched.addAll(openOrderRepository.findDistinctOpenSymbols());
+        } catch (Exception e) {
+            log.warn("Could not load watched symbols for streaming: {}", e.getMessage());
+            return;
+        }
+
+        for (String symbol : watched) {
+            if (subscriptions.add(symbol)) {
+                send("subscribe", symbol);
+            }
+        }
+        for (String symbol : Set.copyOf(subscriptions)) {
+            if (!watched.contains(symbol) && subscriptions.remove(symbol)) {
+                send("unsubscribe", symbol);
+            }
+        }
+    }
+
+    private void connect() {
+        if (stopped) {
+            return;
+        }
+        URI uri = URI.create(streamUrl + "?token=" + apiKey);
+        httpClient.newWebSocketBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .buildAsync(uri, new TradeListener())
+            .whenComplete((socket, error) -> {
+                if (error != null) {
+                    log.warn("Market data stream connection failed: {}", error.getMessage());
+                    scheduleReconnect();
+                }
+            });
+    }
+
+    private synchronized void scheduleReconnect() {
+        if (stopped) {
+            return;
+        }
+        webSocket = null;
+        long delay = Math.min(MAX_BACKOFF_MS, 1000L << Math.min(reconnectAttempts++, 6));
+        log.info("Reconnecting market data stream in {} ms", delay);
+        reconnectScheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void onConnected(WebSocket socket) {
+        webSocket = socket;
+        reconnectAttempts = 0;
+        sendChain = CompletableFuture.completedFuture(socket);
+        log.info("Market data stream connected, subscribing to {} symbols", subscriptions.size());
+        subscriptions.forEach(symbol -> send("subscribe", symbol));
+    }
+
+    // WebSocket allows only one outstanding send, so messages are chained
+    private synchronized void send(String type, String symbol) {
+        WebSocket socket = webSocket;
+        if (socket == null) {
+            return;
+        }
+        String message = objectMapper.createObjectNode()
+            .put("type", type)
+            .put("symbol", symbol)
+            .toString();
+        sendChain = sendChain
+            .exceptionally(error -> socket)
+            .thenCompose(ignored -> socket.sendText(message, true));
+    }
+
+    private void handleMessage(String message) {
+        try {
+            JsonNode root = objectMapper.readTree(message);
+            if (!"trade".equals(root.path("type").asText())) {
+                return;
+            }
+            for (JsonNode trade : root.path("data")) {
+                priceUpdatePublisher.publishTrade(trade.path("s").asText(),
+                    trade.path("p").asDouble(),
+                    trade.path("v").asDouble(),
+                    trade.path("t").asLong());
+            }
+        } catch (Exception e) {
+            log.warn("Skipping malformed market data message: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        reconnectScheduler.shutdownNow();
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "shutdown");
+        }
+    }
+
+    private class TradeListener implements WebSocket.Listener {
+        private final StringBuilder buffer = new StringBuilder();
+
+        @Override
+        public void onOpen(WebSocket socket) {
+            onConnected(socket);
+            socket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket socket, CharSequence data, boolean last) {
+            buffer.append(data);
+            if (last) {
+                handleMessage(buffer.toString());
+                buffer.setLength(0);
+            }
+            socket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket socket, int statusCode, String reason) {
+            log.warn("Market data stream closed ({}): {}", statusCode, reason);
+            scheduleReconnect();
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket socket, Throwable error) {
+            log.warn("Market data stream error: {}", error.getMessage());
+            scheduleReconnect();
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.OpenOrderRequest;
+import Portfolio.Tracker.DTO.OpenOrderResponse;
+import Portfolio.Tracker.DTO.TransactionRequest;
+import Portfolio.Tracker.Entity.OpenOrder;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Exception.PriceDiscrepancyException;
+import Portfolio.Tracker.Exception.StockPriceException;
+import Portfolio.Tracker.Repository.OpenOrderRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.LockTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Resting limit and stop orders, triggered by incoming prices.
+ *
+ * <p>Open orders are held per symbol in two price-sorted books: orders that fire when
+ * the price falls to their level (buy limits, sell stops) and orders that fire when it
+ * rises to it (sell limits, buy stops). A price update takes only the levels it
+ * crossed off the front of each book, so checking costs O(log n + k) for k triggered
+ * orders however many are resting.
+ *
+ * <p>Triggered orders are handed to a small executor and run through
+ * {@link TransactionService}, after a conditional OPEN to TRIGGERED update that stamps
+ * a fresh claim token, so an order executes once even if it was cancelled concurrently
+ * or is also booked on another instance. Every later transition of that execution
+ * requires its token. Stops fill at market; limits refuse a fill past their limit
+ * price and go back to resting. Transient failures (no current quote, an open circuit,
+ * a lock timeout) also put the order back, after a short delay; only the rest are
+ * final. The trade and the FILLED transition commit in one transaction.
+ *
+ * <p>An execution interrupted by a crash leaves its order TRIGGERED. Orders TRIGGERED
+ * for longer than {@code orders.engine.stale-trigger-ms} (far longer than any execution
+ * takes) are presumed abandoned and reopened, at startup and periodically. If the
+ * original execution was in fact still running, its FILLED transition no longer finds
+ * its claim: the trade rolls back and the order is left to whoever holds it now, never
+ * marked FAILED.
+ */
+@Service
+@Slf4j
+public class OpenOrderService implements PriceUpdateListener {
+    static final String OPEN = "OPEN";
+    static final String TRIGGERED = "TRIGGERED";
+    static final String FILLED = "FILLED";
+    static final String FAILED = "FAILED";
+    static final String CANCELLED = "CANCELLED";
+
+    private final OpenOrderRepository openOrderRepository;
+    private final UserRepository userRepository;
+    private final TransactionService transactionService;
+    private final StockPriceService stockPriceService;
+    private final TransactionTemplate transactionTemplate;
+    private final PriceBook priceBook;
+    private final ScheduledExecutorService executor;
+    private final long retryDelayMs;
+    private final long staleTriggerMs;
+
+    private final Map<String, SymbolBook> books = new ConcurrentHashMap<>();
+    private volatile boolean booksBuilt;
+
+    public OpenOrderService(OpenOrderRepository openOrderRepository, UserRepository userRepository,
+                            TransactionService transactionService, StockPriceService stockPriceService,
+                            TransactionTemplate transactionTemplate, PriceBook priceBook,
+                            @Value("${orders.engine.threads:2}") int threads,
+                            @Value("${orders.engine.retry-delay-ms:5000}") long retryDelayMs,
+                            @Value("${orders.engine.stale-trigger-ms:300000}") long staleTriggerMs) {
+        this.openOrderRepository = openOrderRepository;
+        this.userRepository = userRepository;
+        this.transactionService = transactionService;
+        this.stockPriceService = stockPriceService;
+        this.transactionTemplate = transactionTemplate;
+        this.priceBook = priceBook;
+        this.retryDelayMs = retryDelayMs;
+        this.staleTriggerMs = staleTriggerMs;
+        this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "open-order-executor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildBooks() {
+        reopenStaleTriggered();
+        List<OpenOrder> open = openOrderRepository.findWithUserByStatus(OPEN);
+        open.forEach(order -> book(toResting(order, order.getUser().getEmail())));
+        booksBuilt = true;
+        log.info("Rebuilt order books with {} open orders across {} symbols", open.size(), books.size());
+        books.keySet().forEach(this::checkCurrentPrice);
+    }
+
+    /**
+     * Reopens and books orders abandoned in TRIGGERED by an execution that crashed,
+     * here or on another instance, after the books were built.
+     */
+    @Scheduled(fixedDelayString = "${orders.engine.recovery-interval-ms:60000}")
+    public void recoverStaleTriggered() {
+        if (!booksBuilt) {
+            return;
+        }
+        List<OpenOrder> reopened = reopenStaleTriggered();
+        reopened.forEach(order -> book(toResting(order, order.getUser().getEmail())));
+        reopened.stream().map(OpenOrder::getSymbol).distinct().forEach(this::checkCurrentPrice);
+    }
+
+    public OpenOrderResponse placeOrder(OpenOrderRequest request, String email) {
+        validate(request);
+        User user = userRepository.findByEmail(email)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        OpenOrder order = new OpenOrder();
+        order.setUser(user);
+        order.setSymbol(request.getStockSymbol());
+        order.setStockName(request.getStockName());
+        order.setSide(request.getSide());
+        order.setOrderType(request.getOrderType());
+        order.setTriggerPrice(request.getTriggerPrice());
+        order.setQuantity(request.getQuantity());
+        order.setStatus(OPEN);
+        OpenOrder saved = openOrderRepository.save(order);
+
+        book(toResting(saved, email));
+        // The price may already be through the trigger level
+        checkCurrentPrice(saved.getSymbol());
+        return mapToResponse(saved);
+    }
+
+    public OpenOrderResponse cancelOrder(Long orderId, String email) {
+        OpenOrder order = openOrderRepository.findById(orderId)
+            .filter(candidate -> userRepository.findByEmail(email)
+                .map(user -> user.getId().equals(candidate.getUser().getId()))
+                .orElse(false))
+            .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        if (openOrderRepository.transition(orderId, OPEN, CANCELLED, null, LocalDateTime.now()) == 0) {
+            throw new RuntimeException("Order is no longer open");
+        }
+        SymbolBook book = books.get(order.getSymbol());
+        if (book != null) {
+            book.remove(orderId);
+        }
+        return openOrderRepository.findById(orderId)
+            .map(this::mapToResponse)
+            .orElseThrow(() -> new RuntimeException("Order not found"));
+    }
+
+    public List<OpenOrderResponse> getOrders(String email, String status) {
+        User user = userRepository.findByEmail(email)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        List<OpenOrder> orders = status == null
+            ? openOrderRepository.findByUserOrderByCreatedAtDesc(user)
+            : openOrderRepository.findByUserAndStatusOrderByCreatedAtDesc(user, status.toUpperCase());
+        return orders.stream()
+            .map(this::mapToResponse)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public void onPriceUpdate(String symbol, double price, double volume, long timestamp) {
+        SymbolBook book = books.get(symbol);
+        if (book == null) {
+            return;
+        }
+        List<RestingOrder> triggered = book.takeTriggered(price);
+        if (!triggered.isEmpty()) {
+            triggered.forEach(order -> executor.execute(() -> execute(order, price)));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // Only a current price may trigger; a stale one waits for the next refresh
+    private void checkCurrentPrice(String symbol) {
+        PriceBook.Snapshot price = new PriceBook.Snapshot();
+        if (!priceBook.read(symbol, price) || price.getLast() <= 0) {
+            return;
+        }
+        boolean fresh = price.hasTradeWithin(StockPriceService.QUOTE_TTL)
+            || stockPriceService.getQuoteAge(symbol)
+                .map(age -> age.compareTo(StockPriceService.QUOTE_TTL) < 0)
+                .orElse(false);
+        if (fresh) {
+            onPriceUpdate(symbol, price.getLast(), 0, price.getUpdatedAt());
+        }
+    }
+
+    // A fill commits together with its FILLED transition, so an order still TRIGGERED
+    // long after it was claimed never traded and can safely rest again
+    private List<OpenOrder> reopenStaleTriggered() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(staleTriggerMs * 1_000_000);
+        List<OpenOrder> reopened = new ArrayList<>();
+        for (OpenOrder order : openOrderRepository.findTriggeredBefore(cutoff)) {
+            // Orders triggered before claim tokens existed have none to match
+            int updated = order.getClaimToken() == null
+                ? openOrderRepository.transition(order.getId(), TRIGGERED, OPEN, null, LocalDateTime.now())
+                : openOrderRepository.release(order.getId(), order.getClaimToken(), OPEN, null, LocalDateTime.now());
+            if (updated > 0) {
+                reopened.add(order);
+            }
+        }
+        if (!reopened.isEmpty()) {
+            log.warn("Reopened {} orders left triggered by an interrupted execution", reopened.size());
+        }
+        return reopened;
+    }
+
+    private void execute(RestingOrder order, double triggerPrice) {
+        String token = UUID.randomUUID().toString();
+        if (openOrderRepository.claim(order.id(), token, LocalDateTime.now()) == 0) {
+            return;
+        }
+        log.info("Order {} triggered at {} ({} {} {} @ {})",
+            order.id(), triggerPrice, order.side(), order.quantity(), order.symbol(), order.triggerPrice());
+
+        TransactionRequest request = TransactionRequest.builder()
+            .stockSymbol(order.symbol())
+            .stockName(order.stockName())
+            .type(order.side())
+            .quantity(order.quantity())
+            .build();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                transactionService.processTransaction(request, order.email(), order.limitPrice());
+                if (openOrderRepository.release(order.id(), token, FILLED, null, LocalDateTime.now()) == 0) {
+                    // Presumed abandoned and reopened meanwhile; undo the trade
+                    throw new ClaimLostException();
+                }
+            });
+        } catch (ClaimLostException e) {
+            // The order belongs to whoever reopened or re-triggered it; leave it alone
+            log.warn("Order {} was recovered while executing; trade rolled back", order.id());
+        } catch (PriceDiscrepancyException e) {
+            // The fill price moved back past the limit; rest until the level is crossed again
+            log.info("Order {} not filled: {}", order.id(), e.getMessage());
+            reopen(order, token, 0);
+        } catch (Exception e) {
+            if (isRetryable(e)) {
+                log.warn("Triggered order {} could not execute, retrying in {} ms: {}",
+                    order.id(), retryDelayMs, e.getMessage());
+                reopen(order, token, retryDelayMs);
+            } else {
+                log.warn("Triggered order {} failed: {}", order.id(), e.getMessage());
+                openOrderRepository.release(order.id(), token, FAILED, e.getMessage(), LocalDateTime.now());
+            }
+        }
+    }
+
+    // Back to OPEN right away so it can be cancelled; booked again after the delay
+    private void reopen(RestingOrder order, String token, long delayMs) {
+        if (openOrderRepository.release(order.id(), token, OPEN, null, LocalDateTime.now()) == 0) {
+            return;
+        }
+        if (delayMs <= 0) {
+            book(order);
+        } else {
+            executor.schedule(() -> book(order), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Missing or stale prices, an open circuit and lock or query timeouts clear up on their own
+    private static boolean isRetryable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StockPriceException || cause instanceof TransientDataAccessException
+                    || cause instanceof LockTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void book(RestingOrder order) {
+        books.computeIfAbsent(order.symbol(), symbol -> new SymbolBook()).add(order);
+    }
+
+    private static void validate(OpenOrderRequest request) {
+        if (request.getStockSymbol() == null || request.getStockSymbol().isBlank()) {
+            throw new RuntimeException("Symbol is required");
+        }
+        if (!"BUY".equals(request.getSide()) && !"SELL".equals(request.getSide())) {
+            throw new RuntimeException("Side must be BUY or SELL");
+        }
+        if (!"LIMIT".equals(request.getOrderType()) && !"STOP".equals(request.getOrderType())) {
+            throw new RuntimeException("Order type must be LIMIT or STOP");
+        }
+        if (request.getTriggerPrice() <= 0 || request.getQuantity() <= 0) {
+            throw new RuntimeException("Trigger price and quantity must be positive");
+        }
+    }
+
+    private static RestingOrder toResting(OpenOrder order, String email) {
+        // Buy limits and sell stops fire on a fall to the level, the others on a rise
+        boolean limit = "LIMIT".equals(order.getOrderType());
+        boolean firesOnFall = "BUY".equals(order.getSide()) == limit;
+        return new RestingOrder(order.getId(), email, order.getSymbol(), order.getStockName(), order.getSide(),
+            order.getQuantity(), order.getTriggerPrice(), firesOnFall, limit ? order.getTriggerPrice() : null);
+    }
+
+    private OpenOrderResponse mapToResponse(OpenOrder order) {
+        return OpenOrderResponse.builder()
+            .id(order.getId())
+            .symbol(order.getSymbol())
+            .side(order.getSide())
+            .orderType(order.getOrderType())
+            .triggerPrice(order.getTriggerPrice())
+            .quantity(order.getQuantity())
+            .status(order.getStatus())
+            .message(order.getMessage())
+            .createdAt(order.getCreatedAt())
+            .updatedAt(order.getUpdatedAt())
+            .build();
+    }
+
+    private static final class ClaimLostException extends RuntimeException {
+        ClaimLostException() {
+            super(null, null, false, false);
+        }
+    }
+
+    // limitPrice is the worst acceptable fill price; stops fill at market and have none
+    private record RestingOrder(Long id, String email, String symbol, String stockName, String side,
+                                int quantity, double triggerPrice, boolean firesOnFall, Double limitPrice) {
+    }
+
+    private static final class SymbolBook {
+        // Fire when price <= level: highest level first
+        private final NavigableMap<Double, List<RestingOrder>> firesOnFall = new TreeMap<>();
+        // Fire when price >= level: lowest level first
+        private final NavigableMap<Double, List<RestingOrder>> firesOnRise = new TreeMap<>();
+
+        synchronized void add(RestingOrder order) {
+            (order.firesOnFall() ? firesOnFall : firesOnRise)
+                .computeIfAbsent(order.triggerPrice(), level -> new ArrayList<>())
+                .add(order);
+        }
+
+        synchronized void remove(Long orderId) {
+            removeFrom(firesOnFall, orderId);
+            removeFrom(firesOnRise, orderId);
+        }
+
+        synchronized List<RestingOrder> takeTriggered(double price) {
+            List<RestingOrder> triggered = new ArrayList<>(0);
+            drain(firesOnFall.tailMap(price, true), triggered);
+            drain(firesOnRise.headMap(price, true), triggered);
+            return triggered;
+        }
+
+        private static void drain(NavigableMap<Double, List<RestingOrder>> crossed, List<RestingOrder> into) {
+            if (crossed.isEmpty()) {
+                return;
+            }
+            crossed.values().forEach(into::addAll);
+            crossed.clear();
+        }
+
+        private static void removeFrom(NavigableMap<Double, List<RestingOrder>> side, Long orderId) {
+            Iterator<List<RestingOrder>> levels = side.values().iterator();
+            while (levels.hasNext()) {
+                List<RestingOrder> level = levels.next();
+                if (level.removeIf(order -> order.id().equals(orderId)) && level.isEmpty()) {
+                    levels.remove();
+                }
+            }
+        }
+    }
+}
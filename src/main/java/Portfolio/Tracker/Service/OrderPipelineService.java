@@ -0,0 +1,272 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.OrderStatus;
+import Portfolio.Tracker.DTO.OrderStatus.State;
+import Portfolio.Tracker.DTO.StockQuote;
+import Portfolio.Tracker.DTO.TransactionRequest;
+import Portfolio.Tracker.Entity.AsyncOrder;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.AsyncOrderRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts orders without holding the request thread and executes them in the
+ * background.
+ *
+ * <p>Every order is written to {@code async_orders} before it is acknowledged, and its
+ * state is kept there, so a restart or deploy loses neither queued orders nor their
+ * status. Orders are routed to one of a fixed set of single-threaded stripes by user,
+ * so a user's orders run strictly in submission order while different users' orders
+ * run in parallel, without any global lock. Each stripe has a bounded queue; when it is
+ * full the order is rejected up front instead of piling up.
+ *
+ * <p>An execution claims its order (QUEUED to RUNNING under a fresh token), fetches the
+ * quote before the database transaction starts, and then applies the trade and marks
+ * the order COMPLETED in one transaction. A RUNNING row therefore never has a committed
+ * trade behind it: orders left RUNNING or QUEUED by a stopped instance are requeued at
+ * startup and by a periodic sweep, and an execution whose claim was taken over rolls
+ * its trade back.
+ */
+@Service
+@Slf4j
+public class OrderPipelineService {
+    private static final int RESUME_BATCH = 500;
+
+    private final TransactionService transactionService;
+    private final StockPriceService stockPriceService;
+    private final AsyncOrderRepository asyncOrderRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor[] stripes;
+    private final Counter rejected;
+
+    // Orders sitting in this instance's stripes, so the sweep does not queue them twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Value("${orders.async.stale-ms:300000}")
+    private long staleMs;
+
+    @Value("${orders.async.retention-hours:24}")
+    private long retentionHours;
+
+    public OrderPipelineService(TransactionService transactionService, StockPriceService stockPriceService,
+                                AsyncOrderRepository asyncOrderRepository, UserRepository userRepository,
+                                TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                                @Value("${orders.async.stripes:8}") int stripeCount,
+                                @Value("${orders.async.queue-capacity:100}") int queueCapacity) {
+        this.transactionService = transactionService;
+        this.stockPriceService = stockPriceService;
+        this.asyncOrderRepository = asyncOrderRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.stripes = new ThreadPoolExecutor[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            String name = "order-stripe-" + i;
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> new Thread(runnable, name),
+                new ThreadPoolExecutor.AbortPolicy());
+        }
+        this.rejected = Counter.builder("orders.async.rejected")
+            .description("Orders rejected because their stripe's queue was full")
+            .register(meterRegistry);
+        Gauge.builder("orders.async.queued", this, OrderPipelineService::queuedOrders)
+            .description("Orders waiting across all stripes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Stores the order and queues it for execution. The request is expected to have
+     * been validated by the caller.
+     *
+     * @throws RejectedExecutionException when the user's stripe is at capacity
+     */
+    public OrderStatus submit(TransactionRequest request, String email) {
+        User user = userRepository.findByEmail(email)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        LocalDateTime now = LocalDateTime.now();
+        AsyncOrder order = new AsyncOrder();
+        order.setId(UUID.randomUUID().toString());
+        order.setUser(user);
+        order.setSymbol(request.getStockSymbol());
+        order.setStockName(request.getStockName());
+        order.setType(request.getType());
+        order.setQuantity(request.getQuantity());
+        order.setState(State.QUEUED.name());
+        order.setSubmittedAt(now);
+        order.setUpdatedAt(now);
+        asyncOrderRepository.save(order);
+
+        if (!enqueue(order.getId(), request, email)) {
+            asyncOrderRepository.deleteById(order.getId());
+            rejected.increment();
+            throw new RejectedExecutionException("Too many pending orders, please retry shortly");
+        }
+        return toStatus(order);
+    }
+
+    /**
+     * Status of an order submitted by the user, or empty if unknown or expired.
+     */
+    public Optional<OrderStatus> getStatus(String orderId, String email) {
+        return asyncOrderRepository.findByIdAndUserEmail(orderId, email).map(this::toStatus);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        resume(LocalDateTime.now());
+    }
+
+    /**
+     * Requeues orders a stopped or stalled instance left behind and drops finished ones
+     * past retention. Orders queued within the staleness window are left to whichever
+     * instance accepted them.
+     */
+    @Scheduled(fixedDelayString = "${orders.async.resume-interval-ms:60000}",
+        initialDelayString = "${orders.async.resume-interval-ms:60000}")
+    public void resumeStale() {
+        LocalDateTime now = LocalDateTime.now();
+        resume(now.minus(staleMs, ChronoUnit.MILLIS));
+        int deleted = asyncOrderRepository.deleteFinishedBefore(now.minusHours(retentionHours));
+        if (deleted > 0) {
+            log.debug("Deleted {} finished orders past retention", deleted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+        for (ThreadPoolExecutor stripe : stripes) {
+            if (!stripe.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Order stripe did not drain before shutdown, {} orders left queued for the next start",
+                    stripe.shutdownNow().size());
+            }
+        }
+    }
+
+    private void resume(LocalDateTime queuedBefore) {
+        LocalDateTime now = LocalDateTime.now();
+        int requeued = asyncOrderRepository.requeueRunningBefore(now.minus(staleMs, ChronoUnit.MILLIS), now);
+        int resumed = 0;
+        Set<ThreadPoolExecutor> full = new HashSet<>();
+        for (AsyncOrder order : asyncOrderRepository.findQueuedBefore(queuedBefore, PageRequest.of(0, RESUME_BATCH))) {
+            String email = order.getUser().getEmail();
+            if (inFlight.contains(order.getId()) || full.contains(stripeFor(email))) {
+                continue;
+            }
+            if (enqueue(order.getId(), toRequest(order), email)) {
+                resumed++;
+            } else {
+                // Skip the rest of this user's stripe so their orders keep their order
+                full.add(stripeFor(email));
+            }
+        }
+        if (requeued > 0 || resumed > 0) {
+            log.info("Resumed {} queued orders ({} requeued after stalling while running)", resumed, requeued);
+        }
+    }
+
+    private boolean enqueue(String orderId, TransactionRequest request, String email) {
+        if (!inFlight.add(orderId)) {
+            return true;
+        }
+        try {
+            stripeFor(email).execute(() -> execute(orderId, request, email));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(orderId);
+            return false;
+        }
+    }
+
+    private void execute(String orderId, TransactionRequest request, String email) {
+        try {
+            String token = UUID.randomUUID().toString();
+            if (asyncOrderRepository.claim(orderId, token, LocalDateTime.now()) == 0) {
+                return;
+            }
+            try {
+                StockQuote quote = stockPriceService.getQuote(request.getStockSymbol());
+                transactionTemplate.executeWithoutResult(status -> {
+                    transactionService.processTransactionAt(request, email, quote);
+                    int finished = asyncOrderRepository.finish(orderId, token, State.COMPLETED.name(), null,
+                        LocalDateTime.now());
+                    if (finished == 0) {
+                        throw new ClaimLostException();
+                    }
+                });
+            } catch (ClaimLostException e) {
+                log.warn("Order {} was requeued while running; its trade was rolled back", orderId);
+            } catch (Exception e) {
+                log.warn("Order {} failed: {}", orderId, e.getMessage());
+                asyncOrderRepository.finish(orderId, token, State.FAILED.name(), e.getMessage(), LocalDateTime.now());
+            }
+        } finally {
+            inFlight.remove(orderId);
+        }
+    }
+
+    private OrderStatus toStatus(AsyncOrder order) {
+        return OrderStatus.builder()
+            .orderId(order.getId())
+            .state(State.valueOf(order.getState()))
+            .symbol(order.getSymbol())
+            .type(order.getType())
+            .quantity(order.getQuantity())
+            .message(order.getMessage())
+            .submittedAt(order.getSubmittedAt())
+            .completedAt(order.getCompletedAt())
+            .build();
+    }
+
+    private static TransactionRequest toRequest(AsyncOrder order) {
+        return TransactionRequest.builder()
+            .stockSymbol(order.getSymbol())
+            .stockName(order.getStockName())
+            .type(order.getType())
+            .quantity(order.getQuantity())
+            .build();
+    }
+
+    private ThreadPoolExecutor stripeFor(String email) {
+        return stripes[Math.floorMod(email.hashCode(), stripes.length)];
+    }
+
+    private double queuedOrders() {
+        int queued = 0;
+        for (ThreadPoolExecutor stripe : stripes) {
+            queued += stripe.getQueue().size();
+        }
+        return queued;
+    }
+
+    // Thrown inside the trade's transaction to roll it back when the claim was lost
+    private static final class ClaimLostException extends RuntimeException {
+    }
+}
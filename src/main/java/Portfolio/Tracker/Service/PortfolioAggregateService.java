@@ -0,0 +1,305 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.PortfolioStats;
+import Portfolio.Tracker.Entity.Portfolio;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps each active user's portfolio totals current in memory so that stats reads do
+ * not touch the database or the quote services.
+ *
+ * <p>An aggregate is built on the user's first stats request and indexed under every
+ * symbol it holds. A price update then adjusts only the aggregates holding that
+ * symbol, by the change in that one position's value; a committed trade replaces the
+ * traded position. A periodic pass rebuilds every aggregate from the database and
+ * the {@link PriceBook} and counts any drift the incremental updates accumulated.
+ * Aggregates of users who stop asking for stats are dropped after an idle period.
+ * Closed (zero-quantity) positions are left out, so {@code totalPositions} matches the
+ * live stream and the daily snapshots.
+ */
+@Service
+@Slf4j
+public class PortfolioAggregateService implements PriceUpdateListener {
+    private static final Duration IDLE_EXPIRY = Duration.ofMinutes(30);
+    private static final double DRIFT_TOLERANCE = 0.01;
+    private static final int RECOMPUTE_BATCH = 500;
+
+    private final PortfolioRepository portfolioRepository;
+    private final UserRepository userRepository;
+    private final StockPriceService stockPriceService;
+    private final PriceBook priceBook;
+    private final Counter driftCorrections;
+
+    private final Map<String, Set<UserAggregate>> aggregatesBySymbol = new ConcurrentHashMap<>();
+    private final Cache<String, UserAggregate> aggregates = Caffeine.newBuilder()
+        .expireAfterAccess(IDLE_EXPIRY)
+        .removalListener((String email, UserAggregate aggregate, RemovalCause cause) -> {
+            if (aggregate != null) {
+                deindex(aggregate);
+            }
+        })
+        .build();
+
+    public PortfolioAggregateService(PortfolioRepository portfolioRepository, UserRepository userRepository,
+                                     StockPriceService stockPriceService, PriceBook priceBook,
+                                     MeterRegistry meterRegistry) {
+        this.portfolioRepository = portfolioRepository;
+        this.userRepository = userRepository;
+        this.stockPriceService = stockPriceService;
+        this.priceBook = priceBook;
+        this.driftCorrections = Counter.builder("portfolio.aggregates.drift")
+            .description("Aggregates whose incremental totals differed from a full recompute")
+            .register(meterRegistry);
+    }
+
+    public PortfolioStats getStats(String email) {
+        UserAggregate aggregate = aggregates.getIfPresent(email);
+        if (aggregate == null) {
+            aggregate = load(email);
+        }
+        return aggregate.toStats();
+    }
+
+    @Override
+    public void onPriceUpdate(String symbol, double price, double volume, long timestamp) {
+        Set<UserAggregate> holders = aggregatesBySymbol.get(symbol);
+        if (holders == null || holders.isEmpty()) {
+            return;
+        }
+        // The publisher records the price in the book before dispatching
+        PriceBook.Snapshot snapshot = new PriceBook.Snapshot();
+        double changePercent = priceBook.read(symbol, snapshot) ? snapshot.getChangePercent() : 0;
+        for (UserAggregate aggregate : holders) {
+            aggregate.applyPrice(symbol, price, changePercent);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPortfolioChanged(PortfolioChangedEvent event) {
+        UserAggregate aggregate = aggregates.getIfPresent(event.email());
+        if (aggregate != null) {
+            aggregate.applyPosition(event.symbol(), event.quantity(), event.averagePrice());
+        }
+    }
+
+    /**
+     * Rebuilds every cached aggregate from the database and the current prices and
+     * replaces the incrementally maintained totals.
+     */
+    @Scheduled(fixedDelayString = "${portfolio.aggregates.recompute-interval-ms:300000}")
+    public void recompute() {
+        List<String> emails = new ArrayList<>(aggregates.asMap().keySet());
+        for (int from = 0; from < emails.size(); from += RECOMPUTE_BATCH) {
+            List<String> batch = emails.subList(from, Math.min(from + RECOMPUTE_BATCH, emails.size()));
+            Map<String, List<Portfolio>> holdingsByEmail;
+            try {
+                holdingsByEmail = portfolioRepository.findByUserEmailIn(batch).stream()
+                    .collect(Collectors.groupingBy(portfolio -> portfolio.getUser().getEmail()));
+            } catch (Exception e) {
+                log.warn("Could not reload holdings for aggregate recompute: {}", e.getMessage());
+                return;
+            }
+
+            for (String email : batch) {
+                UserAggregate aggregate = aggregates.getIfPresent(email);
+                if (aggregate != null && aggregate.reset(holdingsByEmail.getOrDefault(email, List.of()))) {
+                    driftCorrections.increment();
+                    log.debug("Corrected drifted portfolio aggregate for {}", email);
+                }
+            }
+        }
+    }
+
+    private UserAggregate load(String email) {
+        User user = userRepository.findByEmail(email)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        List<Portfolio> holdings = portfolioRepository.findByUser(user);
+        if (!holdings.isEmpty()) {
+            stockPriceService.prefetchQuotes(holdings.stream()
+                .map(Portfolio::getSymbol)
+                .collect(Collectors.toSet()));
+        }
+
+        UserAggregate aggregate = new UserAggregate();
+        aggregate.reset(holdings);
+        UserAggregate existing = aggregates.asMap().putIfAbsent(email, aggregate);
+        if (existing != null) {
+            deindex(aggregate);
+            return existing;
+        }
+        return aggregate;
+    }
+
+    private void index(String symbol, UserAggregate aggregate) {
+        aggregatesBySymbol.computeIfAbsent(symbol, key -> ConcurrentHashMap.newKeySet()).add(aggregate);
+    }
+
+    private void deindex(UserAggregate aggregate) {
+        for (String symbol : aggregate.symbols()) {
+            aggregatesBySymbol.computeIfPresent(symbol, (key, holders) -> {
+                holders.remove(aggregate);
+                return holders.isEmpty() ? null : holders;
+            });
+        }
+    }
+
+    private static final class Position {
+        int quantity;
+        double averagePrice;
+        double price;
+        double changePercent;
+
+        double value() {
+            return price * quantity;
+        }
+
+        double dayChange() {
+            return changePercent * value() / 100;
+        }
+    }
+
+    private final class UserAggregate {
+        private final Map<String, Position> positions = new HashMap<>();
+        private double totalValue;
+        private double totalCost;
+        private double todayChange;
+
+        synchronized PortfolioStats toStats() {
+            return PortfolioStats.builder()
+                .totalValue(totalValue)
+                .todayChange(todayChange)
+                .totalReturn(totalCost != 0 ? ((totalValue - totalCost) / totalCost) * 100 : 0)
+                .totalPositions(positions.size())
+                .build();
+        }
+
+        synchronized List<String> symbols() {
+            return new ArrayList<>(positions.keySet());
+        }
+
+        synchronized void applyPrice(String symbol, double price, double changePercent) {
+            Position position = positions.get(symbol);
+            if (position == null) {
+                return;
+            }
+            totalValue -= position.value();
+            todayChange -= position.dayChange();
+            position.price = price;
+            position.changePercent = changePercent;
+            totalValue += position.value();
+            todayChange += position.dayChange();
+        }
+
+        synchronized void applyPosition(String symbol, int quantity, double averagePrice) {
+            Position position = positions.get(symbol);
+            if (quantity <= 0) {
+                // A closed position no longer counts, as in the live stream and snapshots
+                if (position != null) {
+                    positions.remove(symbol);
+                    totalValue -= position.value();
+                    todayChange -= position.dayChange();
+                    totalCost -= position.averagePrice * position.quantity;
+                    aggregatesBySymbol.computeIfPresent(symbol, (key, holders) -> {
+                        holders.remove(this);
+                        return holders.isEmpty() ? null : holders;
+                    });
+                }
+                return;
+            }
+            if (position == null) {
+                // Indexed before reading the book so no update for the symbol is missed
+                index(symbol, this);
+                position = new Position();
+                positions.put(symbol, position);
+                readPrice(symbol, position, 0);
+            } else {
+                totalValue -= position.value();
+                todayChange -= position.dayChange();
+                totalCost -= position.averagePrice * position.quantity;
+            }
+            position.quantity = quantity;
+            position.averagePrice = averagePrice;
+            totalValue += position.value();
+            todayChange += position.dayChange();
+            totalCost += position.averagePrice * position.quantity;
+        }
+
+        /**
+         * Replaces all positions and totals from the holdings and the current prices.
+         *
+         * @return whether the previous totals differed beyond the drift tolerance
+         */
+        synchronized boolean reset(List<Portfolio> holdings) {
+            double previousValue = totalValue;
+            double previousChange = todayChange;
+            double previousCost = totalCost;
+            int previousCount = positions.size();
+
+            Map<String, Position> previous = new HashMap<>(positions);
+            positions.clear();
+            for (Portfolio holding : holdings) {
+                if (holding.getQuantity() <= 0) {
+                    continue;
+                }
+                index(holding.getSymbol(), this);
+                Position position = new Position();
+                position.quantity = holding.getQuantity();
+                position.averagePrice = holding.getAveragePrice();
+                position.changePercent = holding.getDayChangePercent();
+                readPrice(holding.getSymbol(), position, holding.getCurrentPrice());
+                positions.put(holding.getSymbol(), position);
+            }
+            previous.keySet().stream()
+                .filter(symbol -> !positions.containsKey(symbol))
+                .forEach(symbol -> aggregatesBySymbol.computeIfPresent(symbol, (key, holders) -> {
+                    holders.remove(this);
+                    return holders.isEmpty() ? null : holders;
+                }));
+
+            totalValue = 0;
+            todayChange = 0;
+            totalCost = 0;
+            for (Position position : positions.values()) {
+                totalValue += position.value();
+                todayChange += position.dayChange();
+                totalCost += position.averagePrice * position.quantity;
+            }
+
+            return !previous.isEmpty() && (previousCount != positions.size()
+                || Math.abs(previousValue - totalValue) > DRIFT_TOLERANCE
+                || Math.abs(previousChange - todayChange) > DRIFT_TOLERANCE
+                || Math.abs(previousCost - totalCost) > DRIFT_TOLERANCE);
+        }
+
+        // Prices come from the book, falling back to the persisted price
+        private void readPrice(String symbol, Position position, double fallback) {
+            PriceBook.Snapshot snapshot = new PriceBook.Snapshot();
+            if (priceBook.read(symbol, snapshot)) {
+                position.price = snapshot.getLast();
+                position.changePercent = snapshot.getChangePercent();
+            } else {
+                position.price = fallback;
+            }
+        }
+    }
+}
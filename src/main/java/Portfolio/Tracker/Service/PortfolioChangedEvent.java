@@ -0,0 +1,9 @@
+package Portfolio.Tracker.Service;
+
+/**
+ * Published when a user's holdings change (a trade was executed), carrying the traded
+ * position's new quantity and average price. Listeners that keep per-user state should
+ * apply it once the surrounding transaction has committed.
+ */
+public record PortfolioChangedEvent(Long userId, String email, String symbol, int quantity, double averagePrice) {
+}
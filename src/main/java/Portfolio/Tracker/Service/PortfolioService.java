@@ -6,9 +6,8 @@ import Portfolio.Tracker.Repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,25 +17,43 @@ public class PortfolioService {
     private final PortfolioRepository portfolioRepository;
     private final UserRepository userRepository;
     private final StockPriceService stockPriceService;
+    private final PriceBook priceBook;
+    private final PortfolioAggregateService portfolioAggregateService;
 
     public List<PortfolioResponse> getPortfolioByUser(String email) {
         User user = userRepository.findByEmail(email)
             .orElseThrow(() -> new RuntimeException("User not found"));
 
         List<Portfolio> portfolios = portfolioRepository.findByUser(user);
-        
+        Map<String, StockQuote> quotes = fetchQuotes(portfolios);
+
         return portfolios.stream()
-            .map(this::updateAndMapToResponse)
+            .map(portfolio -> mapToResponse(portfolio, quoteOrLastKnown(portfolio, quotes)))
             .collect(Collectors.toList());
     }
 
-    private PortfolioResponse updateAndMapToResponse(Portfolio portfolio) {
-        StockQuote quote = stockPriceService.getQuote(portfolio.getSymbol());
-        
-        portfolio.setCurrentPrice(quote.getCurrentPrice());
-        portfolio.setLastUpdated(LocalDateTime.now());
-        portfolioRepository.save(portfolio);
+    // Fetched prices are persisted by PriceWriteBehind, not on this read path
+    private StockQuote quoteOrLastKnown(Portfolio portfolio, Map<String, StockQuote> quotes) {
+        StockQuote quote = quotes.get(portfolio.getSymbol());
+        return quote != null ? quote : lastKnownQuote(portfolio);
+    }
+
+    /**
+     * Maps a holding using the latest price in the {@link PriceBook}, falling back to the
+     * persisted price. Does not fetch or write anything.
+     */
+    public PortfolioResponse toLiveResponse(Portfolio portfolio) {
+        PriceBook.Snapshot price = new PriceBook.Snapshot();
+        if (!priceBook.read(priceBook.idOf(portfolio.getSymbol()), price)) {
+            return mapToResponse(portfolio, lastKnownQuote(portfolio));
+        }
+        return mapToResponse(portfolio, StockQuote.builder()
+            .currentPrice(price.getLast())
+            .dayChangePercent(price.getChangePercent())
+            .build());
+    }
 
+    private PortfolioResponse mapToResponse(Portfolio portfolio, StockQuote quote) {
         return PortfolioResponse.builder()
             .id(portfolio.getId())
             .symbol(portfolio.getSymbol())
@@ -48,30 +65,43 @@ public class PortfolioService {
             .currentPrice(quote.getCurrentPrice())
             .totalReturn(((quote.getCurrentPrice() - portfolio.getAveragePrice()) 
                 / portfolio.getAveragePrice()) * 100)
+            .stale(quote.isStale())
             .build();
     }
 
+    /**
+     * Totals for the user from the incrementally maintained aggregate.
+     */
     public PortfolioStats getPortfolioStats(String email) {
-        User user = userRepository.findByEmail(email)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+        return portfolioAggregateService.getStats(email);
+    }
 
-        List<Portfolio> portfolios = portfolioRepository.findByUser(user);
-        
+    /**
+     * Values the holdings from the {@link PriceBook} as it stands, without fetching.
+     */
+    public PortfolioStats computeStats(List<Portfolio> portfolios) {
         if (portfolios.isEmpty()) {
             return createEmptyStats();
         }
 
+        // Prices are read straight from the price book; the snapshot is reused across holdings
+        PriceBook.Snapshot price = new PriceBook.Snapshot();
         double totalValue = 0;
         double totalCost = 0;
         double todayChange = 0;
 
         for (Portfolio portfolio : portfolios) {
-            StockQuote quote = stockPriceService.getQuote(portfolio.getSymbol());
-            double marketValue = quote.getCurrentPrice() * portfolio.getQuantity();
-            
+            double currentPrice = portfolio.getCurrentPrice();
+            double dayChangePercent = portfolio.getDayChangePercent();
+            if (priceBook.read(priceBook.idOf(portfolio.getSymbol()), price)) {
+                currentPrice = price.getLast();
+                dayChangePercent = price.getChangePercent();
+            }
+            double marketValue = currentPrice * portfolio.getQuantity();
+
             totalValue += marketValue;
             totalCost += portfolio.getAveragePrice() * portfolio.getQuantity();
-            todayChange += (quote.getDayChangePercent() * marketValue) / 100;
+            todayChange += (dayChangePercent * marketValue) / 100;
         }
 
         return PortfolioStats.builder()
@@ -82,6 +112,21 @@ public class PortfolioService {
             .build();
     }
 
+    private Map<String, StockQuote> fetchQuotes(List<Portfolio> portfolios) {
+        return stockPriceService.getQuotes(portfolios.stream()
+            .map(Portfolio::getSymbol)
+            .collect(Collectors.toSet()));
+    }
+
+    // Used when neither a fresh nor a cached last known quote is available
+    private StockQuote lastKnownQuote(Portfolio portfolio) {
+        return StockQuote.builder()
+            .currentPrice(portfolio.getCurrentPrice())
+            .dayChangePercent(portfolio.getDayChangePercent())
+            .stale(true)
+            .build();
+    }
+
     private PortfolioStats createEmptyStats() {
         return PortfolioStats.builder()
             .totalValue(0.0)
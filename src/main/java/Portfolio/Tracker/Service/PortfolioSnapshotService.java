@@ -0,0 +1,222 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.PortfolioValuePoint;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import Portfolio.Tracker.Repository.PortfolioSnapshotRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Writes one end-of-day valuation per user to {@code portfolio_snapshots} and serves
+ * the resulting series for charts.
+ *
+ * <p>The job first freezes a price per held symbol, so every user is valued against
+ * the same prices no matter how long the run takes; those prices are also stored as
+ * the day's closes in {@code daily_closes}. Users are then split into chunks that are
+ * valued in parallel; each chunk loads its holdings in one query and writes its rows
+ * as a single JDBC batch upsert, so re-running the job on the same day overwrites that
+ * day's rows.
+ */
+@Service
+@Slf4j
+public class PortfolioSnapshotService {
+    private static final String SELECT_HOLDINGS =
+        "select user_id, symbol, quantity, average_price, current_price, day_change_percent "
+            + "from portfolios where user_id in (:userIds) and quantity > 0";
+    private static final String UPSERT_SNAPSHOT =
+        "insert into portfolio_snapshots (user_id, snapshot_date, total_value, total_cost, day_change, positions) "
+            + "values (?, ?, ?, ?, ?, ?) "
+            + "on conflict (user_id, snapshot_date) do update set total_value = excluded.total_value, "
+            + "total_cost = excluded.total_cost, day_change = excluded.day_change, positions = excluded.positions";
+    private static final String UPSERT_CLOSE =
+        "insert into daily_closes (symbol, close_date, close_price) values (?, ?, ?) "
+            + "on conflict (symbol, close_date) do update set close_price = excluded.close_price";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final PortfolioRepository portfolioRepository;
+    private final PortfolioSnapshotRepository snapshotRepository;
+    private final UserRepository userRepository;
+    private final StockPriceService stockPriceService;
+    private final PriceBook priceBook;
+
+    @Value("${portfolio.snapshots.zone:America/New_York}")
+    private String zone;
+
+    @Value("${portfolio.snapshots.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${portfolio.snapshots.threads:4}")
+    private int threads;
+
+    @Value("${portfolio.snapshots.price-timeout-ms:60000}")
+    private long priceTimeoutMs;
+
+    public PortfolioSnapshotService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                                    PortfolioRepository portfolioRepository,
+                                    PortfolioSnapshotRepository snapshotRepository, UserRepository userRepository,
+                                    StockPriceService stockPriceService, PriceBook priceBook) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.portfolioRepository = portfolioRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.userRepository = userRepository;
+        this.stockPriceService = stockPriceService;
+        this.priceBook = priceBook;
+    }
+
+    @Scheduled(cron = "${portfolio.snapshots.cron:0 30 16 * * MON-FRI}", zone = "${portfolio.snapshots.zone:America/New_York}")
+    public void takeDailySnapshots() {
+        takeSnapshots(LocalDate.now(ZoneId.of(zone)));
+    }
+
+    public void takeSnapshots(LocalDate date) {
+        long started = System.currentTimeMillis();
+        Map<String, double[]> prices = freezePrices();
+        recordCloses(prices, date);
+        List<Long> userIds = jdbcTemplate.queryForList("select distinct user_id from portfolios", Long.class);
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "portfolio-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Integer>> chunks = new ArrayList<>();
+            for (int from = 0; from < userIds.size(); from += chunkSize) {
+                List<Long> chunk = userIds.subList(from, Math.min(from + chunkSize, userIds.size()));
+                chunks.add(executor.submit(() -> snapshotChunk(chunk, prices, date)));
+            }
+
+            int written = 0;
+            int failedChunks = 0;
+            for (Future<Integer> chunk : chunks) {
+                try {
+                    written += chunk.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    chunks.forEach(pending -> pending.cancel(true));
+                    log.warn("Portfolio snapshots for {} interrupted after {} ms: {} written, {} failed chunks, "
+                            + "{} of {} chunks not awaited", date, System.currentTimeMillis() - started, written,
+                        failedChunks, chunks.size() - chunks.indexOf(chunk), chunks.size());
+                    return;
+                } catch (Exception e) {
+                    failedChunks++;
+                    log.error("Portfolio snapshot chunk failed: {}", e.getMessage());
+                }
+            }
+            log.info("Wrote {} portfolio snapshots for {} in {} ms ({} failed chunks)",
+                written, date, System.currentTimeMillis() - started, failedChunks);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public List<PortfolioValuePoint> getHistory(String email, String range) {
+        User user = userRepository.findByEmail(email)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        return snapshotRepository.findByUserAndSnapshotDateGreaterThanEqualOrderBySnapshotDateAsc(user, rangeStart(range))
+            .stream()
+            .map(snapshot -> PortfolioValuePoint.builder()
+                .date(snapshot.getSnapshotDate())
+                .totalValue(snapshot.getTotalValue())
+                .totalCost(snapshot.getTotalCost())
+                .dayChange(snapshot.getDayChange())
+                .positions(snapshot.getPositions())
+                .build())
+            .collect(Collectors.toList());
+    }
+
+    private LocalDate rangeStart(String range) {
+        LocalDate today = LocalDate.now(ZoneId.of(zone));
+        switch (range.toUpperCase()) {
+            case "1W": return today.minusWeeks(1);
+            case "1M": return today.minusMonths(1);
+            case "3M": return today.minusMonths(3);
+            case "6M": return today.minusMonths(6);
+            case "YTD": return today.withDayOfYear(1);
+            case "1Y": return today.minusYears(1);
+            case "5Y": return today.minusYears(5);
+            case "ALL": return LocalDate.of(1970, 1, 1);
+            default: throw new RuntimeException("Unsupported range: " + range);
+        }
+    }
+
+    // Last price and day change per held symbol, fixed for the whole run
+    private Map<String, double[]> freezePrices() {
+        List<String> symbols = portfolioRepository.findDistinctHeldSymbols();
+        stockPriceService.prefetchQuotesInBackground(symbols, Duration.ofMillis(priceTimeoutMs));
+
+        Map<String, double[]> prices = new HashMap<>();
+        PriceBook.Snapshot price = new PriceBook.Snapshot();
+        for (String symbol : symbols) {
+            if (priceBook.read(symbol, price)) {
+                prices.put(symbol, new double[] {price.getLast(), price.getChangePercent()});
+            }
+        }
+        return prices;
+    }
+
+    // The frozen prices double as the day's closes, the persisted history RiskService reads
+    private void recordCloses(Map<String, double[]> prices, LocalDate date) {
+        Date closeDate = Date.valueOf(date);
+        List<Object[]> rows = new ArrayList<>(prices.size());
+        prices.forEach((symbol, price) -> {
+            if (price[0] > 0) {
+                rows.add(new Object[] {symbol, closeDate, price[0]});
+            }
+        });
+        jdbcTemplate.batchUpdate(UPSERT_CLOSE, rows);
+    }
+
+    private int snapshotChunk(List<Long> userIds, Map<String, double[]> prices, LocalDate date) {
+        // Users whose positions are all closed still get a row, valued at zero
+        Map<Long, double[]> totals = new HashMap<>();
+        userIds.forEach(userId -> totals.put(userId, new double[4]));
+        namedJdbcTemplate.query(SELECT_HOLDINGS, new MapSqlParameterSource("userIds", userIds), rs -> {
+            double[] price = prices.get(rs.getString("symbol"));
+            double last = price != null ? price[0] : rs.getDouble("current_price");
+            double changePercent = price != null ? price[1] : rs.getDouble("day_change_percent");
+            int quantity = rs.getInt("quantity");
+            double value = last * quantity;
+
+            // total value, total cost, day change, positions
+            double[] total = totals.get(rs.getLong("user_id"));
+            total[0] += value;
+            total[1] += rs.getDouble("average_price") * quantity;
+            total[2] += changePercent * value / 100;
+            total[3]++;
+        });
+
+        Date snapshotDate = Date.valueOf(date);
+        List<Object[]> rows = new ArrayList<>(totals.size());
+        totals.forEach((userId, total) ->
+            rows.add(new Object[] {userId, snapshotDate, total[0], total[1], total[2], (int) total[3]}));
+        jdbcTemplate.batchUpdate(UPSERT_SNAPSHOT, rows);
+        return rows.size();
+    }
+}
@@ -0,0 +1,336 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.PortfolioResponse;
+import Portfolio.Tracker.DTO.PortfolioUpdate;
+import Portfolio.Tracker.Entity.Portfolio;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes live portfolio valuations to subscribed clients over Server-Sent Events.
+ *
+ * <p>A symbol-to-subscriber index routes each price update to the users holding that
+ * symbol. Updates are coalesced per subscriber: a price change only marks the symbol
+ * dirty and schedules one flush after a short delay, and the flush sends the current
+ * state of every dirty holding plus fresh stats. A slow client therefore always
+ * receives the latest state instead of a backlog of intermediate prices.
+ *
+ * <p>Writes run on a separate sender pool, at most one drain per subscriber at a time,
+ * so a client with a full socket buffer only ties up its own sender thread while the
+ * scheduler keeps serving everyone else. Whatever arrives for it meanwhile is folded
+ * into its pending state (snapshot, dirty symbols, heartbeat), never queued. A client
+ * whose write has been blocked for longer than {@code portfolio.stream.max-send-ms} is
+ * dropped.
+ */
+@Service
+@Slf4j
+public class PortfolioStreamService implements PriceUpdateListener {
+    private final PortfolioRepository portfolioRepository;
+    private final UserRepository userRepository;
+    private final PortfolioService portfolioService;
+    private final StockPriceService stockPriceService;
+
+    private final Map<String, Set<Subscriber>> subscribersBySymbol = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> subscribersByEmail = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flushExecutor;
+    private final ExecutorService sendExecutor;
+
+    @Value("${portfolio.stream.flush-delay-ms:250}")
+    private long flushDelayMs;
+
+    @Value("${portfolio.stream.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${portfolio.stream.max-send-ms:10000}")
+    private long maxSendMs;
+
+    public PortfolioStreamService(PortfolioRepository portfolioRepository,
+                                  UserRepository userRepository,
+                                  PortfolioService portfolioService,
+                                  StockPriceService stockPriceService,
+                                  @Value("${portfolio.stream.flush-threads:1}") int flushThreads,
+                                  @Value("${portfolio.stream.send-threads:8}") int sendThreads) {
+        this.portfolioRepository = portfolioRepository;
+        this.userRepository = userRepository;
+        this.portfolioService = portfolioService;
+        this.stockPriceService = stockPriceService;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.flushExecutor = Executors.newScheduledThreadPool(flushThreads, runnable -> {
+            Thread thread = new Thread(runnable, "portfolio-stream-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderIds = new AtomicInteger();
+        this.sendExecutor = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "portfolio-stream-send-" + senderIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe(String email) {
+        User user = userRepository.findByEmail(email)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(email, emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+
+        List<Portfolio> holdings = loadHoldings(user);
+        stockPriceService.prefetchQuotes(holdings.stream().map(Portfolio::getSymbol).collect(Collectors.toSet()));
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return emitter;
+            }
+            subscriber.setHoldings(holdings);
+            subscribersByEmail.computeIfAbsent(email, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            index(subscriber);
+        }
+
+        subscriber.snapshotPending.set(true);
+        drain(subscriber);
+        return emitter;
+    }
+
+    @Override
+    public void onPriceUpdate(String symbol, double price, double volume, long timestamp) {
+        Set<Subscriber> subscribers = subscribersBySymbol.get(symbol);
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.dirtySymbols.add(symbol);
+            scheduleFlush(subscriber);
+        }
+    }
+
+    /**
+     * Reloads the holdings of every open stream for the user after a trade commits.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPortfolioChanged(PortfolioChangedEvent event) {
+        Set<Subscriber> subscribers = subscribersByEmail.get(event.email());
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        userRepository.findByEmail(event.email()).ifPresent(user -> {
+            List<Portfolio> holdings = loadHoldings(user);
+            for (Subscriber subscriber : subscribers) {
+                // Under the subscriber's lock so a concurrent unsubscribe cannot be undone
+                synchronized (subscriber) {
+                    if (subscriber.closed) {
+                        continue;
+                    }
+                    deindex(subscriber);
+                    subscriber.setHoldings(holdings);
+                    index(subscriber);
+                }
+                subscriber.snapshotPending.set(true);
+                drain(subscriber);
+            }
+        });
+    }
+
+    // Comment frames keep proxies from closing idle streams and detect dead clients;
+    // clients stuck in a write since before the last beat are dropped instead
+    @Scheduled(fixedDelayString = "${portfolio.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        subscribersByEmail.values().forEach(subscribers -> subscribers.forEach(subscriber -> {
+            long sendStarted = subscriber.sendStartedAt;
+            if (sendStarted != 0 && now - sendStarted > TimeUnit.MILLISECONDS.toNanos(maxSendMs)) {
+                log.debug("Dropping portfolio stream for {}: blocked in a write for over {} ms",
+                    subscriber.email, maxSendMs);
+                unsubscribe(subscriber);
+                subscriber.emitter.complete();
+                return;
+            }
+            subscriber.heartbeatPending.set(true);
+            drain(subscriber);
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+        subscribersByEmail.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void scheduleFlush(Subscriber subscriber) {
+        if (subscriber.flushScheduled.compareAndSet(false, true)) {
+            flushExecutor.schedule(() -> {
+                // Cleared first so updates arriving during the send schedule another flush
+                subscriber.flushScheduled.set(false);
+                drain(subscriber);
+            }, flushDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Hands the subscriber to a sender unless one is already draining it; that one
+    // picks up whatever is pending before it lets go
+    private void drain(Subscriber subscriber) {
+        if (subscriber.closed || !subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sendExecutor.execute(() -> runDrain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.draining.set(false);
+        }
+    }
+
+    private void runDrain(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = nextEvent(subscriber)) != null) {
+                if (!send(subscriber, event)) {
+                    return;
+                }
+            }
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // Work that arrived after the last check but before the flag was cleared
+        if (subscriber.hasPendingWork()) {
+            drain(subscriber);
+        }
+    }
+
+    private SseEmitter.SseEventBuilder nextEvent(Subscriber subscriber) {
+        if (subscriber.closed) {
+            return null;
+        }
+        List<Portfolio> holdings = subscriber.holdings;
+        if (subscriber.snapshotPending.getAndSet(false)) {
+            subscriber.dirtySymbols.clear();
+            PortfolioUpdate snapshot = PortfolioUpdate.builder()
+                .holdings(holdings.stream().map(portfolioService::toLiveResponse).collect(Collectors.toList()))
+                .stats(portfolioService.computeStats(holdings))
+                .build();
+            return SseEmitter.event().name("snapshot").data(snapshot);
+        }
+        if (!subscriber.dirtySymbols.isEmpty()) {
+            List<PortfolioResponse> changed = new ArrayList<>();
+            for (Portfolio holding : holdings) {
+                if (subscriber.dirtySymbols.remove(holding.getSymbol())) {
+                    changed.add(portfolioService.toLiveResponse(holding));
+                }
+            }
+            // Symbols no longer held are dropped; a held one marked meanwhile waits for the next pass
+            subscriber.dirtySymbols.removeIf(symbol -> !subscriber.heldSymbols.contains(symbol));
+            if (!changed.isEmpty()) {
+                PortfolioUpdate update = PortfolioUpdate.builder()
+                    .holdings(changed)
+                    .stats(portfolioService.computeStats(holdings))
+                    .build();
+                return SseEmitter.event().name("update").data(update);
+            }
+        }
+        if (subscriber.heartbeatPending.getAndSet(false)) {
+            return SseEmitter.event().comment("keep-alive");
+        }
+        return null;
+    }
+
+    // Only the subscriber's current drain writes, so writes to one emitter never overlap
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        subscriber.sendStartedAt = System.nanoTime();
+        try {
+            subscriber.emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping portfolio stream for {}: {}", subscriber.email, e.getMessage());
+            unsubscribe(subscriber);
+            return false;
+        } finally {
+            subscriber.sendStartedAt = 0;
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        synchronized (subscriber) {
+            subscriber.closed = true;
+            deindex(subscriber);
+        }
+        Set<Subscriber> forUser = subscribersByEmail.get(subscriber.email);
+        if (forUser != null) {
+            forUser.remove(subscriber);
+            subscribersByEmail.computeIfPresent(subscriber.email, (key, set) -> set.isEmpty() ? null : set);
+        }
+    }
+
+    private void index(Subscriber subscriber) {
+        for (Portfolio holding : subscriber.holdings) {
+            subscribersBySymbol.computeIfAbsent(holding.getSymbol(), key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+    }
+
+    private void deindex(Subscriber subscriber) {
+        for (Portfolio holding : subscriber.holdings) {
+            subscribersBySymbol.computeIfPresent(holding.getSymbol(), (key, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    private List<Portfolio> loadHoldings(User user) {
+        return portfolioRepository.findByUser(user).stream()
+            .filter(portfolio -> portfolio.getQuantity() > 0)
+            .collect(Collectors.toList());
+    }
+
+    private static final class Subscriber {
+        private final String email;
+        private final SseEmitter emitter;
+        private final Set<String> dirtySymbols = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private final AtomicBoolean snapshotPending = new AtomicBoolean();
+        private final AtomicBoolean heartbeatPending = new AtomicBoolean();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile List<Portfolio> holdings = List.of();
+        private volatile Set<String> heldSymbols = Set.of();
+        private volatile long sendStartedAt;
+        private volatile boolean closed;
+
+        Subscriber(String email, SseEmitter emitter) {
+            this.email = email;
+            this.emitter = emitter;
+        }
+
+        void setHoldings(List<Portfolio> holdings) {
+            this.holdings = List.copyOf(holdings);
+            this.heldSymbols = holdings.stream().map(Portfolio::getSymbol).collect(Collectors.toUnmodifiableSet());
+        }
+
+        boolean hasPendingWork() {
+            return !closed && (snapshotPending.get() || heartbeatPending.get() || !dirtySymbols.isEmpty());
+        }
+    }
+}
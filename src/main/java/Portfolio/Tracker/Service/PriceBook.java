@@ -0,0 +1,208 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.StockQuote;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latest price per symbol, fed by quote fetches and the streaming trade feed.
+ *
+ * <p>Symbols are interned to dense int ids once; prices live in parallel primitive
+ * arrays indexed by id, so hot read loops neither hash strings nor allocate. Each slot
+ * is guarded by a sequence lock: writers bump the slot's sequence to odd, write the
+ * fields and publish an even sequence; readers retry until they observe the same even
+ * sequence before and after copying the fields, which gives them a consistent
+ * multi-field snapshot without taking a lock.
+ *
+ * <p>Slots are allocated in fixed-size chunks that never move once created, so growing
+ * the book never invalidates a slot a concurrent reader or writer is using.
+ */
+@Component
+public class PriceBook {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final VarHandle SEQ = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    /**
+     * Returns the symbol's id, assigning the next free one on first sight.
+     */
+    public int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(symbol, key -> {
+            int assigned = nextId.getAndIncrement();
+            ensureCapacity(assigned);
+            return assigned;
+        });
+    }
+
+    /**
+     * Returns the symbol's id, or -1 if the book has never seen it.
+     */
+    public int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Records a fetched quote. If a streamed trade newer than the quote is already
+     * recorded, its price is kept and only the previous close is taken from the quote.
+     */
+    public void updateQuote(String symbol, StockQuote quote) {
+        int id = intern(symbol);
+        Chunk chunk = chunkFor(id);
+        int slot = id & CHUNK_MASK;
+        long seq = beginWrite(chunk, slot);
+        double previousClose = quote.getPreviousClose();
+        chunk.previousClose[slot] = previousClose;
+        if (chunk.tradeTime[slot] <= quote.getTimestamp() * 1000) {
+            chunk.last[slot] = quote.getCurrentPrice();
+            chunk.change[slot] = quote.getChange();
+            chunk.changePercent[slot] = quote.getDayChangePercent();
+        } else if (previousClose > 0) {
+            chunk.change[slot] = chunk.last[slot] - previousClose;
+            chunk.changePercent[slot] = (chunk.last[slot] - previousClose) / previousClose * 100;
+        }
+        chunk.updatedAt[slot] = System.currentTimeMillis();
+        endWrite(chunk, slot, seq);
+    }
+
+    /**
+     * Records a streamed trade, deriving the day change from the last known previous
+     * close. Trades older than the one already recorded are ignored.
+     *
+     * @param timestamp trade time in epoch milliseconds
+     */
+    public void updateTrade(String symbol, double price, double volume, long timestamp) {
+        int id = intern(symbol);
+        Chunk chunk = chunkFor(id);
+        int slot = id & CHUNK_MASK;
+        long seq = beginWrite(chunk, slot);
+        if (timestamp >= chunk.tradeTime[slot]) {
+            double previousClose = chunk.previousClose[slot];
+            chunk.last[slot] = price;
+            chunk.volume[slot] = volume;
+            chunk.tradeTime[slot] = timestamp;
+            chunk.updatedAt[slot] = System.currentTimeMillis();
+            if (previousClose > 0) {
+                chunk.change[slot] = price - previousClose;
+                chunk.changePercent[slot] = (price - previousClose) / previousClose * 100;
+            }
+        }
+        endWrite(chunk, slot, seq);
+    }
+
+    /**
+     * Copies a consistent snapshot of the slot into {@code into}.
+     *
+     * @return false if nothing has been recorded for the id yet
+     */
+    public boolean read(int id, Snapshot into) {
+        Chunk[] current = chunks;
+        if (id < 0 || (id >>> CHUNK_BITS) >= current.length) {
+            return false;
+        }
+        Chunk chunk = current[id >>> CHUNK_BITS];
+        int slot = id & CHUNK_MASK;
+        while (true) {
+            long before = (long) SEQ.getAcquire(chunk.seq, slot);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            into.last = chunk.last[slot];
+            into.change = chunk.change[slot];
+            into.changePercent = chunk.changePercent[slot];
+            into.previousClose = chunk.previousClose[slot];
+            into.volume = chunk.volume[slot];
+            into.tradeTime = chunk.tradeTime[slot];
+            into.updatedAt = chunk.updatedAt[slot];
+            VarHandle.loadLoadFence();
+            if ((long) SEQ.getVolatile(chunk.seq, slot) == before) {
+                return into.updatedAt != 0;
+            }
+        }
+    }
+
+    public boolean read(String symbol, Snapshot into) {
+        return read(idOf(symbol), into);
+    }
+
+    private static long beginWrite(Chunk chunk, int slot) {
+        while (true) {
+            long seq = (long) SEQ.getVolatile(chunk.seq, slot);
+            if ((seq & 1) == 0 && SEQ.compareAndSet(chunk.seq, slot, seq, seq + 1)) {
+                VarHandle.storeStoreFence();
+                return seq + 1;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void endWrite(Chunk chunk, int slot, long seq) {
+        SEQ.setRelease(chunk.seq, slot, seq + 1);
+    }
+
+    private Chunk chunkFor(int id) {
+        return chunks[id >>> CHUNK_BITS];
+    }
+
+    private synchronized void ensureCapacity(int id) {
+        int needed = (id >>> CHUNK_BITS) + 1;
+        Chunk[] current = chunks;
+        if (needed <= current.length) {
+            return;
+        }
+        Chunk[] grown = new Chunk[needed];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        for (int i = current.length; i < needed; i++) {
+            grown[i] = new Chunk();
+        }
+        chunks = grown;
+    }
+
+    private static final class Chunk {
+        final long[] seq = new long[CHUNK_SIZE];
+        final double[] last = new double[CHUNK_SIZE];
+        final double[] change = new double[CHUNK_SIZE];
+        final double[] changePercent = new double[CHUNK_SIZE];
+        final double[] previousClose = new double[CHUNK_SIZE];
+        final double[] volume = new double[CHUNK_SIZE];
+        final long[] tradeTime = new long[CHUNK_SIZE];
+        final long[] updatedAt = new long[CHUNK_SIZE];
+    }
+
+    /**
+     * Reusable holder for one symbol's prices; allocate once per read loop.
+     */
+    @Getter
+    public static final class Snapshot {
+        private double last;
+        private double change;
+        private double changePercent;
+        private double previousClose;
+        private double volume;
+        /** Epoch millis of the last streamed trade, 0 if none. */
+        private long tradeTime;
+        /** Epoch millis when the slot was last written locally. */
+        private long updatedAt;
+
+        public boolean hasTradeWithin(Duration maxAge) {
+            return tradeTime > 0 && System.currentTimeMillis() - tradeTime <= maxAge.toMillis();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package Portfolio.Tracker.Service;
+
+/**
+ * Receives every price that enters the system, whether from a quote fetch or a
+ * streamed trade. Implementations are called on the thread that received the price
+ * and must not block.
+ */
+public interface PriceUpdateListener {
+
+    /**
+     * @param timestamp epoch milliseconds of the trade or quote
+     */
+    void onPriceUpdate(String symbol, double price, double volume, long timestamp);
+}
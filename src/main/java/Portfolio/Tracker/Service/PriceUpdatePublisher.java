@@ -0,0 +1,61 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.StockQuote;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Single entry point for incoming prices: records them in the {@link PriceBook} and
+ * fans them out to every {@link PriceUpdateListener}. Listeners are resolved lazily so
+ * that they may themselves depend on the quote services.
+ */
+@Component
+@Slf4j
+public class PriceUpdatePublisher {
+    private final PriceBook priceBook;
+    private final ObjectProvider<PriceUpdateListener> listenerProvider;
+    private volatile List<PriceUpdateListener> listeners;
+
+    public PriceUpdatePublisher(PriceBook priceBook, ObjectProvider<PriceUpdateListener> listenerProvider) {
+        this.priceBook = priceBook;
+        this.listenerProvider = listenerProvider;
+    }
+
+    public void publishQuote(String symbol, StockQuote quote) {
+        priceBook.updateQuote(symbol, quote);
+        long timestamp = quote.getTimestamp() > 0 ? quote.getTimestamp() * 1000 : System.currentTimeMillis();
+        dispatch(symbol, quote.getCurrentPrice(), 0, timestamp);
+    }
+
+    public void publishTrade(String symbol, double price, double volume, long timestamp) {
+        priceBook.updateTrade(symbol, price, volume, timestamp);
+        dispatch(symbol, price, volume, timestamp);
+    }
+
+    private void dispatch(String symbol, double price, double volume, long timestamp) {
+        if (price <= 0) {
+            return;
+        }
+        for (PriceUpdateListener listener : listeners()) {
+            try {
+                listener.onPriceUpdate(symbol, price, volume, timestamp);
+            } catch (Exception e) {
+                log.warn("Price listener {} failed for {}: {}",
+                    listener.getClass().getSimpleName(), symbol, e.getMessage());
+            }
+        }
+    }
+
+    private List<PriceUpdateListener> listeners() {
+        List<PriceUpdateListener> resolved = listeners;
+        if (resolved == null) {
+            resolved = listenerProvider.orderedStream().collect(Collectors.toList());
+            listeners = resolved;
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,84 @@
+package Portfolio.Tracker.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persists the latest price of each symbol to its holdings in the background, so that
+ * reading a portfolio never writes to the database.
+ *
+ * <p>Price updates only mark the symbol dirty. Each flush drains the dirty set, reads
+ * the current price from the {@link PriceBook} and updates every holding of each symbol
+ * with one set-based statement, all sent as a single JDBC batch. However many ticks
+ * arrive between flushes, a symbol costs one statement per flush. Rows whose price and
+ * day change are both already current are skipped; {@code is distinct from} also catches
+ * holdings that have never been priced (null columns).
+ */
+@Component
+@Slf4j
+public class PriceWriteBehind implements PriceUpdateListener {
+    private static final String UPDATE_HOLDINGS =
+        "update portfolios set current_price = ?, day_change_percent = ?, total_value = ? * quantity, last_updated = ? "
+            + "where symbol = ? and (current_price is distinct from ? or day_change_percent is distinct from ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PriceBook priceBook;
+    private final Set<String> dirtySymbols = ConcurrentHashMap.newKeySet();
+
+    public PriceWriteBehind(JdbcTemplate jdbcTemplate, PriceBook priceBook) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.priceBook = priceBook;
+    }
+
+    @Override
+    public void onPriceUpdate(String symbol, double price, double volume, long timestamp) {
+        dirtySymbols.add(symbol);
+    }
+
+    @Scheduled(fixedDelayString = "${portfolio.prices.flush-interval-ms:15000}")
+    public void flush() {
+        if (dirtySymbols.isEmpty()) {
+            return;
+        }
+
+        PriceBook.Snapshot price = new PriceBook.Snapshot();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> updates = new ArrayList<>();
+        for (String symbol : List.copyOf(dirtySymbols)) {
+            dirtySymbols.remove(symbol);
+            if (priceBook.read(symbol, price) && price.getLast() > 0) {
+                updates.add(new Object[] {
+                    price.getLast(), price.getChangePercent(), price.getLast(), now, symbol,
+                    price.getLast(), price.getChangePercent()
+                });
+            }
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_HOLDINGS, updates);
+            log.debug("Persisted prices for {} symbols", updates.size());
+        } catch (Exception e) {
+            // Put the symbols back so the next flush retries them with whatever is current then
+            updates.forEach(update -> dirtySymbols.add((String) update[4]));
+            log.warn("Failed to persist prices for {} symbols: {}", updates.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
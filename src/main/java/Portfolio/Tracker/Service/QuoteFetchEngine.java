@@ -0,0 +1,100 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.Service.FinnhubRateLimiter.Priority;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs upstream quote fetches on dedicated, bounded pools so that batch lookups
+ * (portfolio valuation, multi-symbol prices) fan out in parallel without ever
+ * having more than {@code maxConcurrency} requests in flight against Finnhub.
+ * Background loads get their own smaller pool, so a backlog of refreshes waiting
+ * on the rate limiter never occupies the threads interactive fetches need.
+ */
+@Component
+@Slf4j
+public class QuoteFetchEngine {
+    private final ThreadPoolExecutor interactiveExecutor;
+    private final ThreadPoolExecutor backgroundExecutor;
+    private final long batchTimeoutMs;
+
+    public QuoteFetchEngine(@Value("${finnhub.quote.fetch.max-concurrency:8}") int maxConcurrency,
+                            @Value("${finnhub.quote.fetch.background-concurrency:2}") int backgroundConcurrency,
+                            @Value("${finnhub.quote.fetch.batch-timeout-ms:4000}") long batchTimeoutMs) {
+        this.interactiveExecutor = newPool("quote-fetch-", maxConcurrency);
+        this.backgroundExecutor = newPool("quote-refresh-", backgroundConcurrency);
+        this.batchTimeoutMs = batchTimeoutMs;
+    }
+
+    public Executor executor(Priority priority) {
+        return priority == Priority.INTERACTIVE ? interactiveExecutor : backgroundExecutor;
+    }
+
+    /**
+     * Waits for the given fetches up to the batch deadline and returns whatever
+     * completed successfully. Symbols that failed or are still pending when the
+     * deadline passes are left out of the result.
+     */
+    public <T> Map<String, T> awaitAll(Map<String, CompletableFuture<T>> futures) {
+        return awaitAll(futures, batchTimeoutMs);
+    }
+
+    /**
+     * Same as {@link #awaitAll(Map)} with an explicit deadline, for batch jobs whose
+     * fetches queue behind the background lane of the rate limiter.
+     */
+    public <T> Map<String, T> awaitAll(Map<String, CompletableFuture<T>> futures, long timeoutMs) {
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                .get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Quote batch of {} symbols exceeded {} ms, returning partial results",
+                futures.size(), timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Individual failures are handled per symbol below
+        }
+
+        Map<String, T> results = new HashMap<>();
+        futures.forEach((symbol, future) -> {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                T value = future.join();
+                if (value != null) {
+                    results.put(symbol, value);
+                }
+            }
+        });
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        interactiveExecutor.shutdownNow();
+        backgroundExecutor.shutdownNow();
+    }
+
+    private static ThreadPoolExecutor newPool(String namePrefix, int size) {
+        AtomicInteger threadIds = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, namePrefix + threadIds.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,84 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.Repository.OpenOrderRepository;
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps quotes warm for every symbol someone currently holds or has an open order on,
+ * reloading each entry once it passes the refresh-after-write threshold and before it
+ * expires, so that request threads rarely have to wait on Finnhub and resting orders
+ * keep receiving prices.
+ */
+@Component
+@Slf4j
+public class QuoteRefreshScheduler {
+    private final PortfolioRepository portfolioRepository;
+    private final OpenOrderRepository openOrderRepository;
+    private final StockPriceService stockPriceService;
+
+    private final Counter refreshes;
+    private final Counter coldLoads;
+    private final Timer refreshLag;
+
+    public QuoteRefreshScheduler(PortfolioRepository portfolioRepository,
+                                 OpenOrderRepository openOrderRepository,
+                                 StockPriceService stockPriceService,
+                                 MeterRegistry meterRegistry) {
+        this.portfolioRepository = portfolioRepository;
+        this.openOrderRepository = openOrderRepository;
+        this.stockPriceService = stockPriceService;
+        this.refreshes = Counter.builder("stock.quotes.refresh")
+            .description("Background refreshes of cached quotes for held symbols")
+            .register(meterRegistry);
+        this.coldLoads = Counter.builder("stock.quotes.refresh.cold")
+            .description("Held symbols that were not cached when the refresher reached them")
+            .register(meterRegistry);
+        this.refreshLag = Timer.builder("stock.quotes.refresh.lag")
+            .description("How far past the refresh threshold an entry was when it got refreshed")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${finnhub.quote.refresh.interval-ms:5000}")
+    public void refreshHeldQuotes() {
+        Set<String> symbols;
+        try {
+            // Resting orders only see prices that reach the PriceBook
+            symbols = new HashSet<>(portfolioRepository.findDistinctHeldSymbols());
+            symbols.addAll(openOrderRepository.findDistinctOpenSymbols());
+        } catch (Exception e) {
+            log.warn("Could not load watched symbols for quote refresh: {}", e.getMessage());
+            return;
+        }
+
+        for (String symbol : symbols) {
+            if (stockPriceService.isStreamed(symbol)) {
+                continue;
+            }
+
+            Optional<Duration> age = stockPriceService.getQuoteAge(symbol);
+            if (age.isEmpty()) {
+                coldLoads.increment();
+                stockPriceService.refreshQuote(symbol);
+                continue;
+            }
+
+            Duration lag = age.get().minus(StockPriceService.QUOTE_REFRESH_AFTER);
+            if (!lag.isNegative()) {
+                refreshLag.record(lag);
+                refreshes.increment();
+                stockPriceService.refreshQuote(symbol);
+            }
+        }
+    }
+}
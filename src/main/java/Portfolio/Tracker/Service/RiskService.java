@@ -0,0 +1,317 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.Candle;
+import Portfolio.Tracker.DTO.PortfolioRisk;
+import Portfolio.Tracker.Entity.Portfolio;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Monte Carlo estimate of value at risk, expected shortfall and drawdown for a user's
+ * holdings.
+ *
+ * <p>Each position follows a geometric Brownian motion whose daily volatility is taken
+ * from the closes the snapshot job persists in {@code daily_closes}. Until a symbol has
+ * enough of those, its in-memory daily candles are used, and failing that a default.
+ * Positions are correlated through a single market factor: every day draws one shared
+ * shock plus one idiosyncratic shock per position.
+ *
+ * <p>Paths are split across a dedicated fork-join pool. Every subtask gets its own
+ * {@link SplittableRandom} split from its parent, so workers never share generator
+ * state, and writes its results into disjoint ranges of primitive arrays; the inner
+ * loop allocates nothing. Only {@code max-concurrent} simulations share the pool at
+ * once, and a request whose paths x days x positions exceeds {@code max-steps} is
+ * refused before any work starts.
+ */
+@Service
+@Slf4j
+public class RiskService {
+    private static final int TRADING_DAYS = 252;
+    private static final int MIN_RETURNS = 20;
+    private static final int VOLATILITY_LOOKBACK = 90;
+    private static final int PATHS_PER_TASK = 1024;
+    private static final String SELECT_CLOSES =
+        "select symbol, close_price from daily_closes where symbol in (:symbols) and close_date >= :since "
+            + "order by symbol, close_date";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final PortfolioRepository portfolioRepository;
+    private final UserRepository userRepository;
+    private final CandleAggregator candleAggregator;
+    private final PriceBook priceBook;
+    private final ForkJoinPool pool;
+    private final Semaphore running;
+
+    @Value("${portfolio.risk.default-volatility:0.30}")
+    private double defaultAnnualVolatility;
+
+    @Value("${portfolio.risk.market-correlation:0.5}")
+    private double marketCorrelation;
+
+    @Value("${portfolio.risk.max-paths:100000}")
+    private int maxPaths;
+
+    @Value("${portfolio.risk.max-horizon-days:250}")
+    private int maxHorizonDays;
+
+    @Value("${portfolio.risk.max-steps:100000000}")
+    private long maxSteps;
+
+    @Value("${portfolio.risk.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMs;
+
+    public RiskService(NamedParameterJdbcTemplate namedJdbcTemplate, PortfolioRepository portfolioRepository,
+                       UserRepository userRepository, CandleAggregator candleAggregator, PriceBook priceBook,
+                       @Value("${portfolio.risk.parallelism:0}") int parallelism,
+                       @Value("${portfolio.risk.max-concurrent:2}") int maxConcurrent) {
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.portfolioRepository = portfolioRepository;
+        this.userRepository = userRepository;
+        this.candleAggregator = candleAggregator;
+        this.priceBook = priceBook;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.running = new Semaphore(Math.max(1, maxConcurrent), true);
+    }
+
+    public PortfolioRisk simulate(String email, int horizonDays, int paths) {
+        if (horizonDays < 1 || horizonDays > maxHorizonDays) {
+            throw new RuntimeException("Horizon must be between 1 and " + maxHorizonDays + " days");
+        }
+        if (paths < 1000 || paths > maxPaths) {
+            throw new RuntimeException("Paths must be between 1000 and " + maxPaths);
+        }
+
+        User user = userRepository.findByEmail(email)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        List<Portfolio> holdings = portfolioRepository.findByUser(user).stream()
+            .filter(portfolio -> portfolio.getQuantity() > 0)
+            .collect(Collectors.toList());
+
+        int positions = holdings.size();
+        if ((long) paths * horizonDays * positions > maxSteps) {
+            throw new RuntimeException("Simulation too large for " + positions
+                + " positions: reduce the paths or the horizon");
+        }
+        Map<String, double[]> closes = loadCloses(holdings);
+        double[] values = new double[positions];
+        double[] volatilities = new double[positions];
+        double portfolioValue = 0;
+        PriceBook.Snapshot price = new PriceBook.Snapshot();
+        for (int i = 0; i < positions; i++) {
+            Portfolio holding = holdings.get(i);
+            double last = priceBook.read(holding.getSymbol(), price) ? price.getLast() : holding.getCurrentPrice();
+            values[i] = last * holding.getQuantity();
+            volatilities[i] = dailyVolatility(holding.getSymbol(), closes.get(holding.getSymbol()));
+            portfolioValue += values[i];
+        }
+        if (portfolioValue <= 0) {
+            return PortfolioRisk.builder().horizonDays(horizonDays).paths(0).build();
+        }
+
+        double[] pnl = new double[paths];
+        double[] drawdowns = new double[paths];
+        acquire();
+        try {
+            long started = System.nanoTime();
+            pool.invoke(new SimulationTask(new Model(values, volatilities, marketCorrelation, horizonDays),
+                new SplittableRandom(), pnl, drawdowns, 0, paths));
+            log.debug("Simulated {} paths x {} days for {} positions in {} ms",
+                paths, horizonDays, positions, (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            running.release();
+        }
+
+        Arrays.sort(pnl);
+        Arrays.sort(drawdowns);
+        return PortfolioRisk.builder()
+            .portfolioValue(portfolioValue)
+            .horizonDays(horizonDays)
+            .paths(paths)
+            .valueAtRisk95(-pnl[tailIndex(paths, 0.95)])
+            .valueAtRisk99(-pnl[tailIndex(paths, 0.99)])
+            .expectedShortfall95(-mean(pnl, 0, tailIndex(paths, 0.95) + 1))
+            .expectedShortfall99(-mean(pnl, 0, tailIndex(paths, 0.99) + 1))
+            .expectedMaxDrawdown(mean(drawdowns, 0, paths))
+            .maxDrawdown95(drawdowns[Math.min(paths - 1, (int) Math.ceil(paths * 0.95) - 1)])
+            .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void acquire() {
+        try {
+            if (!running.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new TaskRejectedException("Too many risk simulations running, please retry shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskRejectedException("Interrupted while waiting to run the risk simulation");
+        }
+    }
+
+    // Persisted closes per held symbol, oldest first, at most the lookback plus one
+    private Map<String, double[]> loadCloses(List<Portfolio> holdings) {
+        Map<String, List<Double>> series = new HashMap<>();
+        if (!holdings.isEmpty()) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("symbols", holdings.stream().map(Portfolio::getSymbol).distinct().collect(Collectors.toList()))
+                // Calendar days that span the lookback in trading days, with room for holidays
+                .addValue("since", Date.valueOf(LocalDate.now().minusDays(VOLATILITY_LOOKBACK * 3L / 2)));
+            namedJdbcTemplate.query(SELECT_CLOSES, params, rs -> {
+                series.computeIfAbsent(rs.getString("symbol"), symbol -> new ArrayList<>())
+                    .add(rs.getDouble("close_price"));
+            });
+        }
+        Map<String, double[]> closes = new HashMap<>();
+        series.forEach((symbol, values) -> closes.put(symbol, values
+            .subList(Math.max(0, values.size() - VOLATILITY_LOOKBACK - 1), values.size())
+            .stream().mapToDouble(Double::doubleValue).toArray()));
+        return closes;
+    }
+
+    // Persisted closes first, then the in-memory daily candles, then the default
+    private double dailyVolatility(String symbol, double[] persisted) {
+        if (persisted != null && persisted.length - 1 >= MIN_RETURNS) {
+            return volatility(persisted);
+        }
+        double[] recent = candleAggregator.getCandles(symbol, CandleAggregator.Resolution.ONE_DAY,
+                VOLATILITY_LOOKBACK + 1).stream()
+            .mapToDouble(Candle::getClose)
+            .toArray();
+        if (recent.length - 1 >= MIN_RETURNS) {
+            return volatility(recent);
+        }
+        return defaultAnnualVolatility / Math.sqrt(TRADING_DAYS);
+    }
+
+    // Standard deviation of daily log returns
+    private static double volatility(double[] closes) {
+        int returns = closes.length - 1;
+        double sum = 0;
+        double sumSquares = 0;
+        for (int i = 1; i < closes.length; i++) {
+            double logReturn = Math.log(closes[i] / closes[i - 1]);
+            sum += logReturn;
+            sumSquares += logReturn * logReturn;
+        }
+        double mean = sum / returns;
+        return Math.sqrt(Math.max(0, (sumSquares - returns * mean * mean) / (returns - 1)));
+    }
+
+    // Index of the (1 - confidence) quantile in ascending profit and loss
+    private static int tailIndex(int paths, double confidence) {
+        return Math.max(0, (int) Math.floor(paths * (1 - confidence)) - 1);
+    }
+
+    private static double mean(double[] values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return to > from ? sum / (to - from) : 0;
+    }
+
+    private static final class Model {
+        final double[] initialValues;
+        final double[] volatilities;
+        final double[] drifts;
+        final double marketLoading;
+        final double idiosyncraticLoading;
+        final int horizonDays;
+        final double initialTotal;
+
+        Model(double[] initialValues, double[] volatilities, double correlation, int horizonDays) {
+            this.initialValues = initialValues;
+            this.volatilities = volatilities;
+            this.horizonDays = horizonDays;
+            this.marketLoading = Math.sqrt(correlation);
+            this.idiosyncraticLoading = Math.sqrt(1 - correlation);
+            // Zero expected return: the Ito correction keeps the mean value flat
+            this.drifts = new double[volatilities.length];
+            double total = 0;
+            for (int i = 0; i < volatilities.length; i++) {
+                drifts[i] = -0.5 * volatilities[i] * volatilities[i];
+                total += initialValues[i];
+            }
+            this.initialTotal = total;
+        }
+    }
+
+    private static final class SimulationTask extends RecursiveAction {
+        private final Model model;
+        private final SplittableRandom random;
+        private final double[] pnl;
+        private final double[] drawdowns;
+        private final int from;
+        private final int to;
+
+        SimulationTask(Model model, SplittableRandom random, double[] pnl, double[] drawdowns, int from, int to) {
+            this.model = model;
+            this.random = random;
+            this.pnl = pnl;
+            this.drawdowns = drawdowns;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PATHS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SimulationTask(model, random.split(), pnl, drawdowns, from, mid),
+                    new SimulationTask(model, random.split(), pnl, drawdowns, mid, to));
+                return;
+            }
+
+            int positions = model.initialValues.length;
+            double[] values = new double[positions];
+            for (int path = from; path < to; path++) {
+                System.arraycopy(model.initialValues, 0, values, 0, positions);
+                double peak = model.initialTotal;
+                double maxDrawdown = 0;
+                double total = model.initialTotal;
+                for (int day = 0; day < model.horizonDays; day++) {
+                    double market = model.marketLoading * random.nextGaussian();
+                    total = 0;
+                    for (int i = 0; i < positions; i++) {
+                        double shock = market + model.idiosyncraticLoading * random.nextGaussian();
+                        values[i] *= Math.exp(model.drifts[i] + model.volatilities[i] * shock);
+                        total += values[i];
+                    }
+                    if (total > peak) {
+                        peak = total;
+                    } else if (peak - total > maxDrawdown) {
+                        maxDrawdown = peak - total;
+                    }
+                }
+                pnl[path] = total - model.initialTotal;
+                drawdowns[path] = maxDrawdown;
+            }
+        }
+    }
+}
@@ -2,16 +2,35 @@ package Portfolio.Tracker.Service;
 
 import Portfolio.Tracker.DTO.StockInfo;
 import Portfolio.Tracker.DTO.StockQuote;
+import Portfolio.Tracker.Entity.StockProfile;
+import Portfolio.Tracker.Exception.StockNotFoundException;
+import Portfolio.Tracker.Exception.StockPriceException;
+import Portfolio.Tracker.Exception.UpstreamHttpException;
+import Portfolio.Tracker.Exception.UpstreamUnavailableException;
+import Portfolio.Tracker.Repository.StockProfileRepository;
+import Portfolio.Tracker.Service.FinnhubRateLimiter.Priority;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.Map;
 import java.util.List;
 import java.util.HashMap;
@@ -20,98 +39,449 @@ import java.util.HashMap;
 @Slf4j
 @RequiredArgsConstructor
 public class StockPriceService {
-    private final RestTemplate restTemplate;
-    
-    @Value("${finnhub.api.base-url}")
-    private String apiBaseUrl;
-    
-    @Value("${finnhub.api.key}")
-    private String apiKey;
-
-    private final Cache<String, StockQuote> quoteCache = Caffeine.newBuilder()
-        .expireAfterWrite(30, TimeUnit.SECONDS)
-        .maximumSize(100)
-        .build();
+    static final Duration QUOTE_TTL = Duration.ofSeconds(30);
+    static final Duration QUOTE_REFRESH_AFTER = Duration.ofSeconds(20);
+    static final Duration PROFILE_TTL = Duration.ofHours(24);
+    static final Duration MISSING_PROFILE_TTL = Duration.ofHours(6);
+    // Approximate retained bytes of profiles held in memory
+    private static final long PROFILE_CACHE_MAX_WEIGHT = 2 * 1024 * 1024;
+
+    private final FinnhubClient finnhubClient;
+    private final QuoteFetchEngine quoteFetchEngine;
+    private final MeterRegistry meterRegistry;
+    private final PriceBook priceBook;
+    private final PriceUpdatePublisher priceUpdatePublisher;
+    private final FinnhubRateLimiter rateLimiter;
+    private final UpstreamCircuitBreaker circuitBreaker;
+    private final StockProfileRepository stockProfileRepository;
 
-    private final Cache<String, StockInfo> infoCache = Caffeine.newBuilder()
+    // Async loading caches keep at most one upstream fetch in flight per symbol:
+    // concurrent misses on the same key all join the same pending future.
+    // Entries read after QUOTE_REFRESH_AFTER are reloaded in the background while
+    // the current value keeps being served; QuoteRefreshScheduler does the same
+    // proactively for held symbols.
+    private final AsyncLoadingCache<String, StockQuote> quoteCache = Caffeine.newBuilder()
+        .expireAfterWrite(QUOTE_TTL)
+        .refreshAfterWrite(QUOTE_REFRESH_AFTER)
+        .maximumSize(2000)
+        .recordStats()
+        .buildAsync(new QuoteLoader());
+
+    // Last quote fetched per symbol, kept well beyond the quote TTL. It supplies the
+    // day-level fields (previous close, open, range) that turn streamed trades into
+    // full quotes, and is served flagged as stale while Finnhub is unavailable.
+    private final Cache<String, StockQuote> lastKnownQuotes = Caffeine.newBuilder()
         .expireAfterWrite(24, TimeUnit.HOURS)
-        .maximumSize(100)
+        .maximumSize(2000)
         .build();
 
+    // L1 in front of the stock_profiles table. Misses read through to the table and
+    // only go to Finnhub for symbols never stored; StockProfileRefreshScheduler keeps
+    // stored profiles from getting older than PROFILE_TTL.
+    private final AsyncLoadingCache<String, StockInfo> infoCache = Caffeine.newBuilder()
+        .expireAfterWrite(PROFILE_TTL)
+        .maximumWeight(PROFILE_CACHE_MAX_WEIGHT)
+        .weigher(StockPriceService::profileWeight)
+        .recordStats()
+        .buildAsync(new StockInfoLoader());
+
+    // Negative entries for symbols Finnhub has no profile for (unknown or delisted), so
+    // repeated lookups do not spend rate limit on a fetch that comes back empty again
+    private final Cache<String, Boolean> missingProfiles = Caffeine.newBuilder()
+        .expireAfterWrite(MISSING_PROFILE_TTL)
+        .maximumSize(10_000)
+        .build();
+
+    @PostConstruct
+    void registerCacheMetrics() {
+        CaffeineCacheMetrics.monitor(meterRegistry, quoteCache.synchronous(), "stockQuotes");
+        CaffeineCacheMetrics.monitor(meterRegistry, infoCache.synchronous(), "stockInfo");
+    }
+
     public StockQuote getQuote(String symbol) {
+        StockQuote streamed = getStreamedQuote(symbol);
+        if (streamed != null) {
+            return streamed;
+        }
+
+        // Skip waiting on the upstream while the circuit is open if we can serve stale
+        StockQuote stale = getStaleQuote(symbol);
+        if (stale != null && circuitBreaker.getState() == UpstreamCircuitBreaker.State.OPEN) {
+            return serveStale(symbol, stale);
+        }
+
         try {
-            StockQuote cachedQuote = quoteCache.getIfPresent(symbol);
-            if (cachedQuote != null) {
-                return cachedQuote;
+            return quoteCache.get(symbol).join();
+        } catch (Exception e) {
+            Throwable cause = unwrap(e);
+            if (stale != null) {
+                log.warn("Serving stale quote for {}: {}", symbol, cause.getMessage());
+                return serveStale(symbol, stale);
             }
+            log.error("Failed to fetch quote for {}: {}", symbol, cause.getMessage());
+            throw new StockPriceException("Failed to fetch stock quote", cause);
+        }
+    }
 
-            String url = String.format("%s/quote?symbol=%s&token=%s", apiBaseUrl, symbol, apiKey);
-            ResponseEntity<JsonNode> response = restTemplate.getForEntity(url, JsonNode.class);
-            
-            if (response.getBody() != null) {
-                JsonNode data = response.getBody();
-                StockQuote quote = StockQuote.builder()
-                    .currentPrice(data.get("c").asDouble())
-                    .change(data.get("d").asDouble())
-                    .dayChangePercent(data.get("dp").asDouble())
-                    .highPrice(data.get("h").asDouble())
-                    .lowPrice(data.get("l").asDouble())
-                    .openPrice(data.get("o").asDouble())
-                    .previousClose(data.get("pc").asDouble())
-                    .timestamp(data.get("t").asLong())
-                    .build();
-
-                quoteCache.put(symbol, quote);
-                return quote;
-            }
-            throw new RuntimeException("Invalid quote data received");
+    public StockInfo getStockInfo(String symbol) {
+        try {
+            return infoCache.get(symbol).join();
         } catch (Exception e) {
-            log.error("Failed to fetch quote for {}: {}", symbol, e.getMessage());
-            throw new RuntimeException("Failed to fetch stock quote", e);
+            Throwable cause = unwrap(e);
+            if (cause instanceof StockNotFoundException) {
+                throw (StockNotFoundException) cause;
+            }
+            log.error("Failed to fetch stock info for {}: {}", symbol, cause.getMessage());
+            throw new RuntimeException("Failed to fetch stock information", cause);
         }
     }
 
-    public StockInfo getStockInfo(String symbol) {
+    /**
+     * Profiles for several symbols; stored profiles are read in a single query and only
+     * symbols never stored are fetched from Finnhub. Symbols that cannot be resolved are
+     * absent from the returned map.
+     */
+    public Map<String, StockInfo> getStockInfos(Collection<String> symbols) {
         try {
-            StockInfo cachedInfo = infoCache.getIfPresent(symbol);
-            if (cachedInfo != null) {
-                return cachedInfo;
+            return infoCache.getAll(symbols).join();
+        } catch (Exception e) {
+            Throwable cause = unwrap(e);
+            log.error("Failed to fetch stock info for {} symbols: {}", symbols.size(), cause.getMessage());
+            throw new RuntimeException("Failed to fetch stock information", cause);
+        }
+    }
+
+    /**
+     * Loads profiles for the symbols into the cache without waiting for them. Symbols
+     * never stored are fetched in the background lane, so warm-up does not compete with
+     * user requests for upstream capacity.
+     */
+    public CompletableFuture<Map<String, StockInfo>> prefetchStockInfos(Collection<String> symbols) {
+        return infoCache.getAll(symbols, (keys, executor) -> loadStockInfos(keys, Priority.BACKGROUND));
+    }
+
+    /**
+     * Refetches the profile from Finnhub in the background lane and stores it; the
+     * current profile keeps being served until the fetch completes.
+     */
+    public CompletableFuture<StockInfo> refreshStockInfo(String symbol) {
+        return CompletableFuture
+            .supplyAsync(() -> fetchStockInfo(symbol, Priority.BACKGROUND), quoteFetchEngine.executor(Priority.BACKGROUND))
+            .whenComplete((info, error) -> {
+                if (error != null) {
+                    log.warn("Failed to refresh stock info for {}: {}", symbol, unwrap(error).getMessage());
+                } else {
+                    infoCache.synchronous().put(symbol, info);
+                }
+            });
+    }
+
+    /**
+     * Resolves quotes for all symbols in parallel. Cache misses are fetched concurrently
+     * on the {@link QuoteFetchEngine} pool; symbols that fail or miss the batch deadline
+     * are absent from the returned map.
+     */
+    public Map<String, StockQuote> getQuotes(Collection<String> symbols) {
+        Map<String, StockQuote> streamed = new HashMap<>();
+        Map<String, CompletableFuture<StockQuote>> futures = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            StockQuote quote = getStreamedQuote(symbol);
+            if (quote != null) {
+                streamed.put(symbol, quote);
+            } else {
+                futures.computeIfAbsent(symbol, quoteCache::get);
             }
+        }
+        if (futures.isEmpty()) {
+            return streamed;
+        }
 
-            String url = String.format("%s/stock/profile2?symbol=%s&token=%s", apiBaseUrl, symbol, apiKey);
-            ResponseEntity<JsonNode> response = restTemplate.getForEntity(url, JsonNode.class);
-            
-            if (response.getBody() != null) {
-                JsonNode data = response.getBody();
-                StockInfo info = StockInfo.builder()
-                    .symbol(symbol)
-                    .name(data.get("name").asText())
-                    .currency(data.get("currency").asText())
-                    .exchange(data.get("exchange").asText())
-                    .build();
-
-                infoCache.put(symbol, info);
-                return info;
+        Map<String, StockQuote> quotes = quoteFetchEngine.awaitAll(futures);
+        if (quotes.size() < futures.size()) {
+            log.warn("Resolved {} of {} quotes", quotes.size(), futures.size());
+            for (String symbol : futures.keySet()) {
+                if (!quotes.containsKey(symbol)) {
+                    StockQuote stale = getStaleQuote(symbol);
+                    if (stale != null) {
+                        quotes.put(symbol, serveStale(symbol, stale));
+                    }
+                }
             }
-            throw new RuntimeException("Invalid stock info received");
-        } catch (Exception e) {
-            log.error("Failed to fetch stock info for {}: {}", symbol, e.getMessage());
-            throw new RuntimeException("Failed to fetch stock information", e);
+        }
+        quotes.putAll(streamed);
+        return quotes;
+    }
+
+    /**
+     * Makes sure the {@link PriceBook} holds current prices for the symbols, fetching
+     * those without a fresh cached quote in parallel under the batch deadline. Callers
+     * then read prices straight from the book.
+     */
+    public void prefetchQuotes(Collection<String> symbols) {
+        Map<String, CompletableFuture<StockQuote>> futures = loadUnstreamedQuotes(symbols, quoteCache::get);
+        if (!futures.isEmpty()) {
+            quoteFetchEngine.awaitAll(futures);
         }
     }
 
+    /**
+     * Variant of {@link #prefetchQuotes(Collection)} for scheduled jobs: missing quotes
+     * are fetched in the background lane of the rate limiter and awaited for up to
+     * {@code timeout} rather than the interactive batch deadline.
+     */
+    public void prefetchQuotesInBackground(Collection<String> symbols, Duration timeout) {
+        Map<String, CompletableFuture<StockQuote>> futures = loadUnstreamedQuotes(symbols,
+            symbol -> quoteCache.get(symbol, (key, executor) -> loadQuote(key, Priority.BACKGROUND)));
+        if (!futures.isEmpty()) {
+            quoteFetchEngine.awaitAll(futures, timeout.toMillis());
+        }
+    }
+
+    private Map<String, CompletableFuture<StockQuote>> loadUnstreamedQuotes(
+            Collection<String> symbols, Function<String, CompletableFuture<StockQuote>> loader) {
+        Map<String, CompletableFuture<StockQuote>> futures = new HashMap<>();
+        PriceBook.Snapshot price = new PriceBook.Snapshot();
+        for (String symbol : symbols) {
+            boolean streamed = priceBook.read(symbol, price) && price.hasTradeWithin(QUOTE_TTL);
+            if (!streamed) {
+                futures.computeIfAbsent(symbol, loader);
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Whether the symbol's price currently comes from the streaming feed, in which case
+     * polling it over REST is unnecessary.
+     */
+    public boolean isStreamed(String symbol) {
+        return getStreamedQuote(symbol) != null;
+    }
+
+    /**
+     * Age of the cached quote for the symbol, or empty when nothing is cached.
+     */
+    public Optional<Duration> getQuoteAge(String symbol) {
+        return quoteCache.synchronous().policy().expireAfterWrite()
+            .flatMap(expiration -> expiration.ageOf(symbol));
+    }
+
+    /**
+     * Reloads the quote in the background lane of the rate limiter. Readers keep getting
+     * the current value until the reload completes; an absent entry is loaded.
+     */
+    public CompletableFuture<StockQuote> refreshQuote(String symbol) {
+        if (getQuoteAge(symbol).isEmpty()) {
+            return quoteCache.get(symbol, (key, executor) -> loadQuote(key, Priority.BACKGROUND));
+        }
+        return quoteCache.synchronous().refresh(symbol);
+    }
+
     public Map<String, Double> getMultiplePrices(List<String> symbols) {
         Map<String, Double> prices = new HashMap<>();
-        for (String symbol : symbols) {
-            try {
-                StockQuote quote = getQuote(symbol);
-                if (quote != null) {
-                    prices.put(symbol, quote.getCurrentPrice());
+        getQuotes(symbols).forEach((symbol, quote) -> prices.put(symbol, quote.getCurrentPrice()));
+        return prices;
+    }
+
+    private StockQuote getStaleQuote(String symbol) {
+        StockQuote lastKnown = lastKnownQuotes.getIfPresent(symbol);
+        return lastKnown != null ? lastKnown.toBuilder().stale(true).build() : null;
+    }
+
+    // Serves the stale quote while a background load revalidates the symbol
+    private StockQuote serveStale(String symbol, StockQuote stale) {
+        refreshQuote(symbol);
+        return stale;
+    }
+
+    // Overlays a recent streamed trade on the last fetched quote for the symbol
+    private StockQuote getStreamedQuote(String symbol) {
+        PriceBook.Snapshot price = new PriceBook.Snapshot();
+        if (!priceBook.read(symbol, price) || !price.hasTradeWithin(QUOTE_TTL)) {
+            return null;
+        }
+        StockQuote reference = lastKnownQuotes.getIfPresent(symbol);
+        if (reference == null || reference.getTimestamp() * 1000 > price.getTradeTime()) {
+            return null;
+        }
+
+        return StockQuote.builder()
+            .currentPrice(price.getLast())
+            .change(price.getChange())
+            .dayChangePercent(price.getChangePercent())
+            .highPrice(Math.max(reference.getHighPrice(), price.getLast()))
+            .lowPrice(reference.getLowPrice() > 0 ? Math.min(reference.getLowPrice(), price.getLast()) : price.getLast())
+            .openPrice(reference.getOpenPrice())
+            .previousClose(price.getPreviousClose())
+            .timestamp(price.getTradeTime() / 1000)
+            .build();
+    }
+
+    private CompletableFuture<StockQuote> loadQuote(String symbol, Priority priority) {
+        return CompletableFuture.supplyAsync(() -> fetchQuote(symbol, priority), quoteFetchEngine.executor(priority));
+    }
+
+    private CompletableFuture<StockInfo> loadStockInfo(String symbol, Priority priority) {
+        Executor executor = quoteFetchEngine.executor(priority);
+        return CompletableFuture.supplyAsync(() -> stockProfileRepository.findById(symbol)
+                .map(StockPriceService::toStockInfo)
+                .orElseGet(() -> fetchStockInfo(symbol, priority)), executor);
+    }
+
+    private CompletableFuture<Map<String, StockInfo>> loadStockInfos(Set<? extends String> symbols, Priority priority) {
+        Executor executor = quoteFetchEngine.executor(priority);
+        return CompletableFuture.supplyAsync(() -> {
+            Map<String, StockInfo> stored = new HashMap<>();
+            stockProfileRepository.findAllById(Set.copyOf(symbols))
+                .forEach(profile -> stored.put(profile.getSymbol(), toStockInfo(profile)));
+            return stored;
+        }, executor).thenCompose(stored -> {
+            Map<String, CompletableFuture<StockInfo>> fetches = new HashMap<>();
+            for (String symbol : symbols) {
+                if (!stored.containsKey(symbol)) {
+                    fetches.put(symbol, CompletableFuture.supplyAsync(
+                        () -> fetchStockInfo(symbol, priority), executor));
                 }
-            } catch (Exception e) {
-                log.error("Failed to fetch price for {}", symbol);
             }
+            return CompletableFuture.allOf(fetches.values().toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, error) -> {
+                    Map<String, StockInfo> infos = new HashMap<>(stored);
+                    fetches.forEach((symbol, future) -> {
+                        if (!future.isCompletedExceptionally()) {
+                            infos.put(symbol, future.join());
+                        }
+                    });
+                    return infos;
+                });
+        });
+    }
+
+    private StockQuote fetchQuote(String symbol, Priority priority) {
+        StockQuote quote = callUpstream(priority, () -> finnhubClient.fetchQuote(symbol));
+        lastKnownQuotes.put(symbol, quote);
+        priceUpdatePublisher.publishQuote(symbol, quote);
+        return quote;
+    }
+
+    private StockInfo fetchStockInfo(String symbol, Priority priority) {
+        if (missingProfiles.getIfPresent(symbol) != null) {
+            throw new StockNotFoundException(symbol);
+        }
+        StockInfo info;
+        try {
+            info = callUpstream(priority, () -> finnhubClient.fetchProfile(symbol));
+        } catch (StockNotFoundException e) {
+            missingProfiles.put(symbol, Boolean.TRUE);
+            throw e;
+        }
+        try {
+            stockProfileRepository.save(toProfile(symbol, info));
+        } catch (Exception e) {
+            log.warn("Could not store profile for {}: {}", symbol, e.getMessage());
+        }
+        return info;
+    }
+
+    private static StockInfo toStockInfo(StockProfile profile) {
+        return StockInfo.builder()
+            .symbol(profile.getSymbol())
+            .name(profile.getName())
+            .currency(profile.getCurrency())
+            .exchange(profile.getExchange())
+            .build();
+    }
+
+    private static StockProfile toProfile(String symbol, StockInfo info) {
+        StockProfile profile = new StockProfile();
+        profile.setSymbol(symbol);
+        profile.setName(info.getName());
+        profile.setCurrency(info.getCurrency());
+        profile.setExchange(info.getExchange());
+        profile.setFetchedAt(LocalDateTime.now());
+        return profile;
+    }
+
+    // Object headers plus two bytes per character of each string field
+    private static int profileWeight(String symbol, StockInfo info) {
+        return 96 + 2 * (symbol.length() + length(info.getName()) + length(info.getCurrency())
+            + length(info.getExchange()));
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    // Only an unreachable upstream (transport errors, timeouts) or an overloaded one (429,
+    // 5xx) counts against the circuit. Any other answer proves it is up; errors that say
+    // nothing about its health (bad payload, interrupt) just give back a trial slot.
+    private <T> T callUpstream(Priority priority, Supplier<T> call) {
+        if (!circuitBreaker.allowRequest()) {
+            throw new StockPriceException("Stock price service temporarily unavailable");
+        }
+        try {
+            rateLimiter.acquire(priority);
+        } catch (StockPriceException e) {
+            circuitBreaker.releaseTrial();
+            throw e;
+        }
+
+        try {
+            T result = call.get();
+            rateLimiter.onSuccess();
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (UpstreamHttpException e) {
+            if (e.isRateLimited()) {
+                rateLimiter.onThrottled(e.getRetryAfter());
+            }
+            if (e.isRateLimited() || !e.isClientError()) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            throw e;
+        } catch (UpstreamUnavailableException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        } catch (StockNotFoundException e) {
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.releaseTrial();
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    // Misses are loaded for a waiting caller; reloads are background work
+    private class QuoteLoader implements AsyncCacheLoader<String, StockQuote> {
+        @Override
+        public CompletableFuture<StockQuote> asyncLoad(String symbol, Executor executor) {
+            return loadQuote(symbol, Priority.INTERACTIVE);
+        }
+
+        @Override
+        public CompletableFuture<StockQuote> asyncReload(String symbol, StockQuote oldValue, Executor executor) {
+            return loadQuote(symbol, Priority.BACKGROUND);
+        }
+    }
+
+    // Reads through to the stored profiles; refreshing is left to refreshStockInfo
+    private class StockInfoLoader implements AsyncCacheLoader<String, StockInfo> {
+        @Override
+        public CompletableFuture<StockInfo> asyncLoad(String symbol, Executor executor) {
+            return loadStockInfo(symbol, Priority.INTERACTIVE);
+        }
+
+        @Override
+        public CompletableFuture<Map<String, StockInfo>> asyncLoadAll(Set<? extends String> symbols, Executor executor) {
+            return loadStockInfos(symbols, Priority.INTERACTIVE);
         }
-        return prices;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.Repository.StockProfileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Refetches stored company profiles older than the profile TTL, oldest first, a small
+ * batch per run in the background lane of the rate limiter. Readers keep getting the
+ * stored profile while it is refreshed.
+ *
+ * <p>Each batch is stamped as attempted before it is fetched, and a successful refetch
+ * clears the stamp. Symbols that keep failing (delisted, renamed) are skipped until
+ * {@code stock.profile.refresh.retry-after-hours} have passed, so they cannot hold the
+ * head of the oldest-first batch and starve every other profile.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class StockProfileRefreshScheduler {
+    private final StockProfileRepository stockProfileRepository;
+    private final StockPriceService stockPriceService;
+
+    @Value("${stock.profile.refresh.batch-size:20}")
+    private int batchSize;
+
+    @Value("${stock.profile.refresh.retry-after-hours:6}")
+    private long retryAfterHours;
+
+    @Scheduled(fixedDelayString = "${stock.profile.refresh.interval-ms:300000}")
+    public void refreshStaleProfiles() {
+        List<String> symbols;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            symbols = stockProfileRepository.findSymbolsToRefresh(now.minus(StockPriceService.PROFILE_TTL),
+                now.minusHours(retryAfterHours), PageRequest.of(0, batchSize));
+            if (!symbols.isEmpty()) {
+                stockProfileRepository.markRefreshAttempted(symbols, now);
+            }
+        } catch (Exception e) {
+            log.warn("Could not load stale stock profiles: {}", e.getMessage());
+            return;
+        }
+
+        if (!symbols.isEmpty()) {
+            log.debug("Refreshing {} stale stock profiles", symbols.size());
+        }
+        symbols.forEach(stockPriceService::refreshStockInfo);
+    }
+}
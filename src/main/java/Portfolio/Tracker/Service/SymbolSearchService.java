@@ -0,0 +1,398 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.StockInfo;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Symbol and company-name lookup over a local listing file, with no upstream calls.
+ *
+ * <p>The universe is indexed as one sorted array of lower-cased keys (the symbol, the
+ * full name and each word of the name), each pointing at its listing. A prefix query
+ * is a binary search for the first key at or after the query followed by a scan while
+ * keys still start with it, which is the flattened equivalent of walking a trie but
+ * without per-node objects. When prefix matches run short, symbols and name words
+ * within a small edit distance are added as fuzzy matches. Fuzzy candidates come from
+ * an inverted index of padded trigrams held in primitive arrays, so only keys sharing
+ * enough trigrams with the query are compared rather than the whole universe.
+ *
+ * <p>The listing is reloaded when the file changes; queries always run against an
+ * immutable index swapped in atomically.
+ */
+@Service
+@Slf4j
+public class SymbolSearchService {
+    private final ResourceLoader resourceLoader;
+
+    @Value("${market.symbols.file:classpath:symbols/us-listings.csv}")
+    private String listingLocation;
+
+    private volatile Index index = Index.EMPTY;
+    private volatile long loadedModified = -1;
+
+    public SymbolSearchService(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @PostConstruct
+    public void reload() {
+        Resource resource = resourceLoader.getResource(listingLocation);
+        try {
+            long modified = lastModified(resource);
+            List<StockInfo> listings = parse(resource);
+            index = Index.build(listings);
+            loadedModified = modified;
+            log.info("Loaded {} symbols from {}", listings.size(), listingLocation);
+        } catch (IOException e) {
+            log.error("Failed to load symbol listing {}: {}", listingLocation, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${market.symbols.reload-check-ms:60000}")
+    public void reloadIfChanged() {
+        long modified = lastModified(resourceLoader.getResource(listingLocation));
+        if (modified > 0 && modified != loadedModified) {
+            reload();
+        }
+    }
+
+    public List<StockInfo> search(String query, int limit) {
+        String normalized = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        return index.search(normalized, limit);
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.isFile() ? resource.lastModified() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static List<StockInfo> parse(Resource resource) throws IOException {
+        List<StockInfo> listings = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line = reader.readLine(); // header
+            while ((line = reader.readLine()) != null) {
+                List<String> fields = splitCsv(line);
+                if (fields.size() < 2 || fields.get(0).isBlank()) {
+                    continue;
+                }
+                listings.add(StockInfo.builder()
+                    .symbol(fields.get(0).trim())
+                    .name(fields.get(1).trim())
+                    .exchange(fields.size() > 2 ? fields.get(2).trim() : null)
+                    .currency(fields.size() > 3 ? fields.get(3).trim() : null)
+                    .build());
+            }
+        }
+        return listings;
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static final class Index {
+        static final Index EMPTY = build(List.of());
+
+        private static final char PAD = '\u0000';
+
+        private final StockInfo[] listings;
+        private final String[] keys;        // sorted
+        private final int[] listingOfKey;   // parallel to keys
+        private final String[] symbolKeys;  // lower-cased symbol per listing
+        // Padded trigrams of every key: gramCodes is sorted, and the keys containing
+        // gramCodes[g] are postings[gramStart[g]..gramStart[g + 1]) in ascending order
+        private final long[] gramCodes;
+        private final int[] gramStart;
+        private final int[] postings;
+
+        private Index(StockInfo[] listings, String[] keys, int[] listingOfKey, String[] symbolKeys,
+                      long[] gramCodes, int[] gramStart, int[] postings) {
+            this.listings = listings;
+            this.keys = keys;
+            this.listingOfKey = listingOfKey;
+            this.symbolKeys = symbolKeys;
+            this.gramCodes = gramCodes;
+            this.gramStart = gramStart;
+            this.postings = postings;
+        }
+
+        static Index build(List<StockInfo> listings) {
+            StockInfo[] all = listings.toArray(new StockInfo[0]);
+            String[] symbolKeys = new String[all.length];
+            List<String> rawKeys = new ArrayList<>();
+            List<Integer> owners = new ArrayList<>();
+            for (int i = 0; i < all.length; i++) {
+                symbolKeys[i] = all[i].getSymbol().toLowerCase(Locale.ROOT);
+                Set<String> keysForListing = new LinkedHashSet<>();
+                keysForListing.add(symbolKeys[i]);
+                String name = all[i].getName().toLowerCase(Locale.ROOT);
+                keysForListing.add(name);
+                for (String word : name.split("[^a-z0-9]+")) {
+                    if (!word.isEmpty()) {
+                        keysForListing.add(word);
+                    }
+                }
+                for (String key : keysForListing) {
+                    rawKeys.add(key);
+                    owners.add(i);
+                }
+            }
+
+            Integer[] order = new Integer[rawKeys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(rawKeys::get));
+            String[] keys = new String[order.length];
+            int[] listingOfKey = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                keys[i] = rawKeys.get(order[i]);
+                listingOfKey[i] = owners.get(order[i]);
+            }
+
+            // Every (trigram, key) pair once, sorted by trigram then key, then split into
+            // the distinct trigrams and their posting lists
+            int pairCount = 0;
+            long[][] gramsOfKey = new long[keys.length][];
+            for (int i = 0; i < keys.length; i++) {
+                gramsOfKey[i] = distinctGrams(keys[i]);
+                pairCount += gramsOfKey[i].length;
+            }
+            long[] pairGrams = new long[pairCount];
+            int[] pairKeys = new int[pairCount];
+            Integer[] pairOrder = new Integer[pairCount];
+            int p = 0;
+            for (int i = 0; i < keys.length; i++) {
+                for (long gram : gramsOfKey[i]) {
+                    pairGrams[p] = gram;
+                    pairKeys[p] = i;
+                    pairOrder[p] = p;
+                    p++;
+                }
+            }
+            Arrays.sort(pairOrder, Comparator.<Integer>comparingLong(pair -> pairGrams[pair])
+                .thenComparingInt(pair -> pairKeys[pair]));
+
+            long[] gramCodes = new long[pairCount];
+            int[] gramStart = new int[pairCount + 1];
+            int[] postings = new int[pairCount];
+            int distinct = 0;
+            for (int i = 0; i < pairCount; i++) {
+                long gram = pairGrams[pairOrder[i]];
+                if (distinct == 0 || gramCodes[distinct - 1] != gram) {
+                    gramCodes[distinct] = gram;
+                    gramStart[distinct] = i;
+                    distinct++;
+                }
+                postings[i] = pairKeys[pairOrder[i]];
+            }
+            gramStart[distinct] = pairCount;
+            return new Index(all, keys, listingOfKey, symbolKeys, Arrays.copyOf(gramCodes, distinct),
+                Arrays.copyOf(gramStart, distinct + 1), postings);
+        }
+
+        List<StockInfo> search(String query, int limit) {
+            // Rank: exact symbol, symbol prefix, other prefix matches, then fuzzy. Prefix
+            // matches are packed as (rank, symbol length, scan order) so one primitive sort
+            // orders them the way a stable sort by rank and symbol length would
+            boolean[] seen = new boolean[listings.length];
+            int from = lowerBound(query);
+            int to = from;
+            while (to < keys.length && keys[to].startsWith(query)) {
+                to++;
+            }
+            long[] ranked = new long[to - from];
+            int[] matchedListings = new int[to - from];
+            int matches = 0;
+            for (int i = from; i < to; i++) {
+                int listing = listingOfKey[i];
+                if (seen[listing]) {
+                    continue;
+                }
+                seen[listing] = true;
+                long rank = symbolKeys[listing].equals(query) ? 0 : symbolKeys[listing].startsWith(query) ? 1 : 2;
+                long length = rank == 0 ? 0 : Math.min(symbolKeys[listing].length(), 0xFFFF);
+                ranked[matches] = rank << 48 | length << 32 | matches;
+                matchedListings[matches] = listing;
+                matches++;
+            }
+            Arrays.sort(ranked, 0, matches);
+
+            List<StockInfo> results = new ArrayList<>(Math.min(limit, listings.length));
+            for (int i = 0; i < matches && results.size() < limit; i++) {
+                results.add(listings[matchedListings[(int) ranked[i]]]);
+            }
+            if (results.size() == limit) {
+                return results;
+            }
+
+            if (query.length() >= 2) {
+                int maxDistance = query.length() >= 5 ? 2 : 1;
+                int[] candidates = fuzzyCandidates(query, maxDistance);
+                for (int i = 0; i < candidates.length && results.size() < limit; i++) {
+                    int listing = listingOfKey[candidates[i]];
+                    if (!seen[listing] && withinDistance(query, keys[candidates[i]], maxDistance)) {
+                        seen[listing] = true;
+                        results.add(listings[listing]);
+                    }
+                }
+            }
+            return results;
+        }
+
+        private int lowerBound(String query) {
+            int lo = 0;
+            int hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid].compareTo(query) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * Keys that can be within {@code maxDistance} edits of the query, in key order.
+         * An edit changes at most three of the query's padded trigrams, so a key within
+         * k edits still shares at least (distinct query trigrams - 3k) of them; only keys
+         * reaching that count are returned. The bound is clamped to one, which can only
+         * drop matches for queries made of one repeated character.
+         */
+        private int[] fuzzyCandidates(String query, int maxDistance) {
+            long[] queryGrams = distinctGrams(query);
+            int required = Math.max(1, queryGrams.length - 3 * maxDistance);
+            int total = 0;
+            int[] lists = new int[queryGrams.length];
+            int found = 0;
+            for (long gram : queryGrams) {
+                int g = Arrays.binarySearch(gramCodes, gram);
+                if (g >= 0) {
+                    lists[found++] = g;
+                    total += gramStart[g + 1] - gramStart[g];
+                }
+            }
+            int[] hits = new int[total];
+            int n = 0;
+            for (int i = 0; i < found; i++) {
+                int g = lists[i];
+                int length = gramStart[g + 1] - gramStart[g];
+                System.arraycopy(postings, gramStart[g], hits, n, length);
+                n += length;
+            }
+            Arrays.sort(hits);
+
+            // A key appears once per shared trigram, so run lengths are the shared counts
+            int[] candidates = new int[total];
+            int count = 0;
+            for (int i = 0; i < total; ) {
+                int run = i;
+                while (run < total && hits[run] == hits[i]) {
+                    run++;
+                }
+                if (run - i >= required) {
+                    candidates[count++] = hits[i];
+                }
+                i = run;
+            }
+            return Arrays.copyOf(candidates, count);
+        }
+
+        // Distinct trigrams of the key padded with two markers at each end, three chars
+        // packed into one long, sorted
+        private static long[] distinctGrams(String key) {
+            int length = key.length() + 2;
+            long[] grams = new long[length];
+            for (int i = 0; i < length; i++) {
+                grams[i] = (long) charAt(key, i - 2) << 32 | (long) charAt(key, i - 1) << 16 | charAt(key, i);
+            }
+            Arrays.sort(grams);
+            int distinct = 0;
+            for (int i = 0; i < length; i++) {
+                if (distinct == 0 || grams[distinct - 1] != grams[i]) {
+                    grams[distinct++] = grams[i];
+                }
+            }
+            return Arrays.copyOf(grams, distinct);
+        }
+
+        private static char charAt(String key, int i) {
+            return i < 0 || i >= key.length() ? PAD : key.charAt(i);
+        }
+
+        // Levenshtein distance with an early exit once every cell in a row exceeds the bound
+        private static boolean withinDistance(String a, String b, int max) {
+            if (Math.abs(a.length() - b.length()) > max) {
+                return false;
+            }
+            int[] previous = new int[b.length() + 1];
+            int[] current = new int[b.length() + 1];
+            for (int j = 0; j <= b.length(); j++) {
+                previous[j] = j;
+            }
+            for (int i = 1; i <= a.length(); i++) {
+                current[0] = i;
+                int rowMin = current[0];
+                for (int j = 1; j <= b.length(); j++) {
+                    int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                    current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                    rowMin = Math.min(rowMin, current[j]);
+                }
+                if (rowMin > max) {
+                    return false;
+                }
+                int[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+            return previous[b.length()] <= max;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.PricePoint;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Persistent intraday price history kept outside Postgres. Every price that passes
+ * through the {@link PriceUpdatePublisher} is appended to a per-symbol file of
+ * fixed-width records, accessed through memory-mapped segments.
+ *
+ * <p>File layout: a 64-byte header ({@code magic}, {@code version}, record count)
+ * followed by 24-byte records ({@code long} epoch millis, {@code double} price,
+ * {@code double} volume) in non-decreasing time order. A sparse in-memory index keeps
+ * the timestamp of every {@value #INDEX_INTERVAL}th record; range queries binary-search
+ * it and then scan at most one interval before reaching the requested start time.
+ * Records are mapped in 96KB segments of {@value #SEGMENT_RECORDS} records, added as
+ * the file grows, so a quiet symbol costs one small mapping per day rather than a
+ * large mostly-empty one.
+ *
+ * <p>Each symbol gets one file per UTC day ({@code <symbol>/<yyyy-MM-dd>.ticks}), so
+ * old history can be dropped a whole file at a time: files untouched for longer than
+ * the retention period are deleted by a periodic sweep. Open files are kept in an LRU
+ * bounded by {@code market.ticks.max-open-files}; the least recently used file is
+ * flushed and closed when the limit is reached and reopened on its next access.
+ */
+@Component
+@Slf4j
+public class TickStore implements PriceUpdateListener {
+    private static final int MAGIC = 0x5449434B; // "TICK"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int COUNT_OFFSET = 8;
+    private static final int RECORD_SIZE = 24;
+    private static final int SEGMENT_RECORDS = 1 << 12;
+    private static final int INDEX_INTERVAL = 256;
+
+    private static final long DAY_MS = Duration.ofDays(1).toMillis();
+
+    private Cache<Path, TickFile> files;
+
+    @Value("${market.ticks.enabled:true}")
+    private boolean enabled;
+
+    @Value("${market.ticks.dir:data/ticks}")
+    private String directory;
+
+    @Value("${market.ticks.max-query-points:10000}")
+    private int maxQueryPoints;
+
+    @Value("${market.ticks.max-open-files:256}")
+    private int maxOpenFiles;
+
+    @Value("${market.ticks.retention-days:30}")
+    private int retentionDays;
+
+    private Path root;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            root = Files.createDirectories(Paths.get(directory).toAbsolutePath().normalize());
+        } catch (IOException e) {
+            log.error("Tick store disabled, cannot create {}: {}", directory, e.getMessage());
+            enabled = false;
+            return;
+        }
+        // The eviction listener runs before the path can be loaded again, so a file is
+        // never open twice
+        files = Caffeine.newBuilder()
+            .maximumSize(maxOpenFiles)
+            .evictionListener((Path path, TickFile file, RemovalCause cause) -> {
+                if (file != null) {
+                    file.close();
+                }
+            })
+            .build();
+    }
+
+    @Override
+    public void onPriceUpdate(String symbol, double price, double volume, long timestamp) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path path = pathFor(symbol, dayOf(timestamp));
+            // A file evicted between lookup and append has been closed; reopen it once
+            if (!file(path).append(timestamp, price, volume)) {
+                file(path).append(timestamp, price, volume);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to record tick for {}: {}", symbol, e.getMessage());
+        }
+    }
+
+    /**
+     * Ticks for the symbol with {@code from <= timestamp <= to}, oldest first, capped at
+     * the configured maximum number of points.
+     */
+    public List<PricePoint> getRange(String symbol, long from, long to) {
+        if (!enabled || from > to) {
+            return Collections.emptyList();
+        }
+        // Nothing is kept from before the retention period or dated after today
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate first = dayOf(Math.max(from, today.minusDays(retentionDays).toEpochDay() * DAY_MS));
+        LocalDate last = dayOf(Math.min(to, (today.toEpochDay() + 1) * DAY_MS - 1));
+
+        List<PricePoint> points = new ArrayList<>();
+        try {
+            for (LocalDate day = first; !day.isAfter(last) && points.size() < maxQueryPoints; day = day.plusDays(1)) {
+                Path path = pathFor(symbol, day);
+                if (Files.exists(path)) {
+                    points.addAll(readDay(path, from, to, maxQueryPoints - points.size()));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read ticks for {}: {}", symbol, e.getMessage());
+            return Collections.emptyList();
+        }
+        return points;
+    }
+
+    @Scheduled(fixedDelayString = "${market.ticks.flush-interval-ms:10000}")
+    public void flush() {
+        if (files != null) {
+            files.asMap().values().forEach(TickFile::force);
+        }
+    }
+
+    /**
+     * Deletes tick files not written to within the retention period, closing them
+     * first if they are open.
+     */
+    @Scheduled(fixedDelayString = "${market.ticks.retention-interval-ms:3600000}")
+    public void deleteExpired() {
+        if (!enabled) {
+            return;
+        }
+        FileTime cutoff = FileTime.from(Instant.now().minus(Duration.ofDays(retentionDays)));
+        int deleted = 0;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (path.toString().endsWith(".ticks") && Files.getLastModifiedTime(path).compareTo(cutoff) < 0) {
+                    files.asMap().computeIfPresent(path, (key, file) -> {
+                        file.close();
+                        return null;
+                    });
+                    if (Files.deleteIfExists(path)) {
+                        deleted++;
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Tick retention sweep failed: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} tick files older than {} days", deleted, retentionDays);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (files != null) {
+            files.asMap().values().forEach(TickFile::close);
+            files.invalidateAll();
+        }
+    }
+
+    private TickFile file(Path path) throws IOException {
+        try {
+            return files.get(path, key -> {
+                try {
+                    Files.createDirectories(key.getParent());
+                    return new TickFile(key);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private List<PricePoint> readDay(Path path, long from, long to, int limit) throws IOException {
+        try {
+            return file(path).range(from, to, limit);
+        } catch (ClosedChannelException e) {
+            // Evicted while mapping a segment; the reopened file sees the same data
+            return file(path).range(from, to, limit);
+        }
+    }
+
+    // Symbols become directory names, so anything that could resolve outside the root
+    // ("", ".", "..") is rejected rather than sanitised
+    private Path pathFor(String symbol, LocalDate day) throws IOException {
+        String name = symbol == null ? "" : symbol.replaceAll("[^A-Za-z0-9._-]", "_");
+        if (name.isEmpty() || name.chars().allMatch(c -> c == '.')) {
+            throw new IOException("Invalid symbol for tick store: " + symbol);
+        }
+        Path directory = root.resolve(name).normalize();
+        if (!directory.startsWith(root) || directory.equals(root)) {
+            throw new IOException("Invalid symbol for tick store: " + symbol);
+        }
+        return directory.resolve(day + ".ticks");
+    }
+
+    private static LocalDate dayOf(long timestamp) {
+        return LocalDate.ofEpochDay(Math.floorDiv(timestamp, DAY_MS));
+    }
+
+    private static final class TickFile {
+        private final FileChannel channel;
+        private final MappedByteBuffer header;
+        private final List<MappedByteBuffer> segments = new ArrayList<>();
+        private long[] index = new long[16];
+        private volatile long count;
+        private long lastTimestamp;
+        private double lastPrice;
+        private boolean dirty;
+        private boolean closed;
+
+        TickFile(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (header.getInt(0) == 0) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(COUNT_OFFSET, 0);
+            } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                channel.close();
+                throw new IOException("Unrecognised tick file " + path);
+            }
+
+            long stored = header.getLong(COUNT_OFFSET);
+            for (long i = 0; i < stored; i += INDEX_INTERVAL) {
+                addIndexEntry(i, timestampAt(i));
+            }
+            if (stored > 0) {
+                lastTimestamp = timestampAt(stored - 1);
+                lastPrice = record(stored - 1).getDouble(offsetInSegment(stored - 1) + 8);
+            }
+            count = stored;
+        }
+
+        /**
+         * @return false if the file has been closed and the tick was not written
+         */
+        synchronized boolean append(long timestamp, double price, double volume) throws IOException {
+            if (closed) {
+                return false;
+            }
+            // Keep the file time-ordered and skip repeated quotes
+            if (timestamp < lastTimestamp || (timestamp == lastTimestamp && price == lastPrice)) {
+                return true;
+            }
+            long position = count;
+            MappedByteBuffer segment = record(position);
+            int offset = offsetInSegment(position);
+            segment.putLong(offset, timestamp);
+            segment.putDouble(offset + 8, price);
+            segment.putDouble(offset + 16, volume);
+
+            if (position % INDEX_INTERVAL == 0) {
+                addIndexEntry(position, timestamp);
+            }
+            lastTimestamp = timestamp;
+            lastPrice = price;
+            header.putLong(COUNT_OFFSET, position + 1);
+            dirty = true;
+            count = position + 1;
+            return true;
+        }
+
+        List<PricePoint> range(long from, long to, int limit) throws IOException {
+            long total = count;
+            long[] sparse;
+            synchronized (this) {
+                sparse = index;
+            }
+            int entries = (int) ((total + INDEX_INTERVAL - 1) / INDEX_INTERVAL);
+
+            // Last index entry at or before 'from'; scanning starts at its record
+            int lo = 0;
+            int hi = entries - 1;
+            int start = 0;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sparse[mid] <= from) {
+                    start = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+
+            List<PricePoint> points = new ArrayList<>();
+            MappedByteBuffer segment = null;
+            for (long i = (long) start * INDEX_INTERVAL; i < total && points.size() < limit; i++) {
+                int offset = offsetInSegment(i);
+                if (segment == null || offset == 0) {
+                    segment = record(i);
+                }
+                long timestamp = segment.getLong(offset);
+                if (timestamp > to) {
+                    break;
+                }
+                if (timestamp >= from) {
+                    points.add(new PricePoint(timestamp, segment.getDouble(offset + 8), segment.getDouble(offset + 16)));
+                }
+            }
+            return points;
+        }
+
+        synchronized void force() {
+            if (dirty) {
+                header.force();
+                segments.forEach(MappedByteBuffer::force);
+                dirty = false;
+            }
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            force();
+            closed = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close tick file: {}", e.getMessage());
+            }
+        }
+
+        private long timestampAt(long position) throws IOException {
+            return record(position).getLong(offsetInSegment(position));
+        }
+
+        private synchronized MappedByteBuffer record(long position) throws IOException {
+            int segmentIndex = (int) (position / SEGMENT_RECORDS);
+            while (segments.size() <= segmentIndex) {
+                long start = HEADER_SIZE + (long) segments.size() * SEGMENT_RECORDS * RECORD_SIZE;
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, start, (long) SEGMENT_RECORDS * RECORD_SIZE));
+            }
+            return segments.get(segmentIndex);
+        }
+
+        private static int offsetInSegment(long position) {
+            return (int) (position % SEGMENT_RECORDS) * RECORD_SIZE;
+        }
+
+        private void addIndexEntry(long position, long timestamp) {
+            int slot = (int) (position / INDEX_INTERVAL);
+            if (slot >= index.length) {
+                index = Arrays.copyOf(index, Math.max(slot + 1, index.length * 2));
+            }
+            index[slot] = timestamp;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.TransactionFilter;
+import Portfolio.Tracker.DTO.TransactionPage;
+import Portfolio.Tracker.DTO.TransactionResponse;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Transaction history without loading a user's whole history at once.
+ *
+ * <p>Pages are read newest first with keyset pagination on {@code (date, id)}: the
+ * cursor carries the last row's date and id and the next page starts strictly after
+ * it, so every page is an index range scan on {@code (user_id, date, id)} no matter how
+ * deep the client pages. Exports walk the same keyset internally, one page per query:
+ * each page is read on a connection that goes straight back to the pool, and only then
+ * written to the client, so a slow download never holds a connection or transaction.
+ */
+@Service
+@Slf4j
+public class TransactionHistoryService {
+    private static final String COLUMNS = "select id, symbol, type, quantity, price, total_amount, status, date from transactions";
+    private static final String CSV_HEADER = "id,symbol,type,quantity,price,totalAmount,status,date\n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final int exportPageSize;
+
+    @Value("${transactions.history.max-page-size:200}")
+    private int maxPageSize;
+
+    public TransactionHistoryService(JdbcTemplate jdbcTemplate, UserRepository userRepository, ObjectMapper objectMapper,
+                                     @Value("${transactions.export.page-size:500}") int exportPageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.exportPageSize = Math.max(1, exportPageSize);
+    }
+
+    public enum ExportFormat { CSV, NDJSON }
+
+    public TransactionPage getPage(String email, TransactionFilter filter, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(COLUMNS);
+        appendWhere(sql, args, resolveUserId(email), filter);
+        if (cursor != null && !cursor.isBlank()) {
+            Object[] position = decodeCursor(cursor);
+            sql.append(" and (date, id) < (?, ?)");
+            args.add(position[0]);
+            args.add(position[1]);
+        }
+        sql.append(" order by date desc, id desc limit ?");
+        args.add(pageSize + 1);
+
+        List<TransactionResponse> rows = jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray());
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            TransactionResponse last = rows.get(pageSize - 1);
+            nextCursor = encodeCursor(last.getDate(), last.getId());
+        }
+        return TransactionPage.builder()
+            .transactions(new ArrayList<>(rows))
+            .nextCursor(nextCursor)
+            .build();
+    }
+
+    /**
+     * Writes every matching transaction, newest first, to the stream in the given
+     * format. Memory use is bounded by the export page size regardless of history
+     * length, and no connection is held while writing.
+     */
+    public void export(String email, TransactionFilter filter, ExportFormat format, OutputStream out) {
+        Long userId = resolveUserId(email);
+        try {
+            if (format == ExportFormat.CSV) {
+                out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+            }
+            Object[] position = null;
+            List<TransactionResponse> rows;
+            do {
+                List<Object> args = new ArrayList<>();
+                StringBuilder sql = new StringBuilder(COLUMNS);
+                appendWhere(sql, args, userId, filter);
+                if (position != null) {
+                    sql.append(" and (date, id) < (?, ?)");
+                    args.add(position[0]);
+                    args.add(position[1]);
+                }
+                sql.append(" order by date desc, id desc limit ?");
+                args.add(exportPageSize);
+
+                rows = jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray());
+                for (TransactionResponse row : rows) {
+                    if (format == ExportFormat.CSV) {
+                        out.write(toCsv(row).getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        out.write(objectMapper.writeValueAsBytes(row));
+                        out.write('\n');
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    TransactionResponse last = rows.get(rows.size() - 1);
+                    position = new Object[] {Timestamp.valueOf(last.getDate()), last.getId()};
+                }
+                out.flush();
+            } while (rows.size() == exportPageSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Long resolveUserId(String email) {
+        return userRepository.findByEmail(email)
+            .map(User::getId)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    private static void appendWhere(StringBuilder sql, List<Object> args, Long userId, TransactionFilter filter) {
+        sql.append(" where user_id = ?");
+        args.add(userId);
+        if (filter.getSymbol() != null && !filter.getSymbol().isBlank()) {
+            sql.append(" and symbol = ?");
+            args.add(filter.getSymbol().trim());
+        }
+        if (filter.getType() != null && !filter.getType().isBlank()) {
+            sql.append(" and type = ?");
+            args.add(filter.getType().trim().toUpperCase());
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" and date >= ?");
+            args.add(Timestamp.valueOf(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" and date < ?");
+            args.add(Timestamp.valueOf(filter.getTo()));
+        }
+    }
+
+    private static String encodeCursor(LocalDateTime date, Long id) {
+        String raw = date + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Object[] {
+                Timestamp.valueOf(LocalDateTime.parse(raw.substring(0, separator))),
+                Long.parseLong(raw.substring(separator + 1))
+            };
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    private static String toCsv(TransactionResponse row) {
+        return row.getId() + "," + csvField(row.getSymbol()) + "," + csvField(row.getType()) + ","
+            + row.getQuantity() + "," + row.getPrice() + "," + row.getTotalAmount() + ","
+            + csvField(row.getStatus()) + "," + (row.getDate() != null ? row.getDate() : "") + "\n";
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private static final RowMapper<TransactionResponse> ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp date = rs.getTimestamp("date");
+        return TransactionResponse.builder()
+            .id(rs.getLong("id"))
+            .symbol(rs.getString("symbol"))
+            .type(rs.getString("type"))
+            .quantity(rs.getInt("quantity"))
+            .price(rs.getDouble("price"))
+            .totalAmount(rs.getDouble("total_amount"))
+            .status(rs.getString("status"))
+            .date(date != null ? date.toLocalDateTime() : null)
+            .build();
+    };
+}
@@ -2,67 +2,201 @@ package Portfolio.Tracker.Service;
 
 import Portfolio.Tracker.DTO.*;
 import Portfolio.Tracker.Entity.*;
+import Portfolio.Tracker.Exception.PriceDiscrepancyException;
+import Portfolio.Tracker.Exception.StockPriceException;
 import Portfolio.Tracker.Repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.security.core.context.SecurityContextHolder;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class TransactionService {
+    private static final int MAX_BASKET_LEGS = 100;
+
     private final TransactionRepository transactionRepository;
     private final PortfolioRepository portfolioRepository;
     private final UserRepository userRepository;
     private final StockPriceService stockPriceService;
-
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Executes a trade against the user's position. The position row is locked for the
+     * rest of the transaction (and created first if absent), so concurrent trades on
+     * the same position are applied one after the other instead of overwriting each
+     * other's quantity and average price.
+     */
     @Transactional
     public void processTransaction(TransactionRequest request, String userEmail) {
+        processTransaction(request, userEmail, null);
+    }
+
+    /**
+     * Same as {@link #processTransaction(TransactionRequest, String)}, refusing to fill
+     * a buy above {@code limitPrice} or a sell below it. A null limit fills at market.
+     *
+     * @throws PriceDiscrepancyException if the current price is past the limit
+     */
+    @Transactional
+    public void processTransaction(TransactionRequest request, String userEmail, Double limitPrice) {
+        execute(request, userEmail, stockPriceService.getQuote(request.getStockSymbol()), limitPrice);
+    }
+
+    /**
+     * Same as {@link #processTransaction(TransactionRequest, String)} at a quote the
+     * caller fetched beforehand, typically outside the transaction so no connection is
+     * held while the quote loads. The quote must still be fresh.
+     */
+    @Transactional
+    public void processTransactionAt(TransactionRequest request, String userEmail, StockQuote quote) {
+        execute(request, userEmail, quote, null);
+    }
+
+    private void execute(TransactionRequest request, String userEmail, StockQuote quote, Double limitPrice) {
         User user = userRepository.findByEmail(userEmail)
             .orElseThrow(() -> new RuntimeException("User not found"));
 
-        StockQuote quote = stockPriceService.getQuote(request.getStockSymbol());
         validateTransaction(request, quote);
+        if (limitPrice != null) {
+            checkLimit(request, quote, limitPrice);
+        }
 
-        Portfolio portfolio = getOrCreatePortfolio(user, request);
+        Portfolio portfolio = lockPortfolio(user, request);
+        if ("SELL".equals(request.getType()) && portfolio.getQuantity() < request.getQuantity()) {
+            throw new RuntimeException("Insufficient shares to sell");
+        }
         updatePortfolio(portfolio, request, quote);
         saveTransaction(user, request, quote);
+        eventPublisher.publishEvent(new PortfolioChangedEvent(user.getId(), user.getEmail(),
+            portfolio.getSymbol(), portfolio.getQuantity(), portfolio.getAveragePrice()));
+    }
+
+    /**
+     * Executes all legs of a basket in one database transaction: either every leg is
+     * applied or none is. All legs are priced with a single parallel quote fetch, the
+     * affected positions are locked in symbol order (so concurrent baskets cannot
+     * deadlock) and the transaction rows are inserted as one JDBC batch.
+     */
+    @Transactional
+    public List<TransactionResponse> processBasket(BasketOrderRequest basket, String userEmail) {
+        List<TransactionRequest> legs = basket.getLegs();
+        if (legs == null || legs.isEmpty() || legs.size() > MAX_BASKET_LEGS) {
+            throw new RuntimeException("A basket needs between 1 and " + MAX_BASKET_LEGS + " legs");
+        }
+        for (TransactionRequest leg : legs) {
+            if (leg.getStockSymbol() == null || leg.getQuantity() <= 0
+                    || !("BUY".equals(leg.getType()) || "SELL".equals(leg.getType()))) {
+                throw new RuntimeException("Each leg needs a symbol, a positive quantity and type BUY or SELL");
+            }
+        }
+
+        User user = userRepository.findByEmail(userEmail)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        Set<String> symbols = legs.stream()
+            .map(TransactionRequest::getStockSymbol)
+            .collect(Collectors.toCollection(TreeSet::new));
+        Map<String, StockQuote> quotes = stockPriceService.getQuotes(symbols);
+        for (TransactionRequest leg : legs) {
+            try {
+                validateTransaction(leg, quotes.get(leg.getStockSymbol()));
+            } catch (RuntimeException e) {
+                throw new RuntimeException(e.getMessage() + " for " + leg.getStockSymbol());
+            }
+        }
+
+        Map<String, Portfolio> positions = lockPortfolios(user, legs, symbols);
+        List<Transaction> transactions = new ArrayList<>(legs.size());
+        for (TransactionRequest leg : legs) {
+            Portfolio portfolio = positions.get(leg.getStockSymbol());
+            if (portfolio == null) {
+                throw new RuntimeException("Portfolio not found for " + leg.getStockSymbol());
+            }
+            if ("SELL".equals(leg.getType()) && portfolio.getQuantity() < leg.getQuantity()) {
+                throw new RuntimeException("Insufficient shares to sell " + leg.getStockSymbol());
+            }
+            StockQuote quote = quotes.get(leg.getStockSymbol());
+            updatePortfolio(portfolio, leg, quote);
+            transactions.add(newTransaction(user, leg, quote));
+        }
+        transactionRepository.saveAll(transactions);
+
+        positions.values().forEach(portfolio -> eventPublisher.publishEvent(new PortfolioChangedEvent(
+            user.getId(), user.getEmail(), portfolio.getSymbol(), portfolio.getQuantity(), portfolio.getAveragePrice())));
+        return transactions.stream()
+            .map(this::mapToResponse)
+            .collect(Collectors.toList());
     }
 
     private void validateTransaction(TransactionRequest request, StockQuote quote) {
-        if (quote == null) {
-            throw new RuntimeException("Unable to fetch current stock price");
+        if (quote == null || quote.isStale()) {
+            throw new StockPriceException("Unable to fetch current stock price");
+        }
+    }
+
+    private void checkLimit(TransactionRequest request, StockQuote quote, double limitPrice) {
+        double price = quote.getCurrentPrice();
+        if ("BUY".equals(request.getType()) && price > limitPrice) {
+            throw new PriceDiscrepancyException("Price " + price + " is above the limit " + limitPrice);
+        }
+        if ("SELL".equals(request.getType()) && price < limitPrice) {
+            throw new PriceDiscrepancyException("Price " + price + " is below the limit " + limitPrice);
+        }
+    }
+
+    private Portfolio lockPortfolio(User user, TransactionRequest request) {
+        Optional<Portfolio> existing = portfolioRepository.findForUpdate(user.getId(), request.getStockSymbol());
+        if (existing.isPresent()) {
+            return existing.get();
         }
         if ("SELL".equals(request.getType())) {
-            Portfolio portfolio = portfolioRepository
-                .findByUserAndSymbol(userRepository.findByEmail(SecurityContextHolder.getContext()
-                    .getAuthentication().getName()).orElseThrow(), request.getStockSymbol())
-                .orElseThrow(() -> new RuntimeException("Portfolio not found"));
-                
-            if (portfolio.getQuantity() < request.getQuantity()) {
-                throw new RuntimeException("Insufficient shares to sell");
+            throw new RuntimeException("Portfolio not found");
+        }
+        portfolioRepository.insertEmptyIfAbsent(user.getId(), request.getStockSymbol(), request.getStockName());
+        return portfolioRepository.findForUpdate(user.getId(), request.getStockSymbol())
+            .orElseThrow(() -> new RuntimeException("Portfolio not found"));
+    }
+
+    // Locks every position the basket touches, creating absent ones that are bought
+    private Map<String, Portfolio> lockPortfolios(User user, List<TransactionRequest> legs, Set<String> symbols) {
+        Map<String, Portfolio> positions = lockAll(user, symbols);
+        if (positions.size() < symbols.size()) {
+            Map<String, String> names = new HashMap<>();
+            for (TransactionRequest leg : legs) {
+                if ("BUY".equals(leg.getType()) && !positions.containsKey(leg.getStockSymbol())) {
+                    names.putIfAbsent(leg.getStockSymbol(), leg.getStockName());
+                }
+            }
+            if (!names.isEmpty()) {
+                new TreeMap<>(names).forEach((symbol, name) ->
+                    portfolioRepository.insertEmptyIfAbsent(user.getId(), symbol, name));
+                positions = lockAll(user, symbols);
             }
         }
+        return positions;
     }
 
-    private Portfolio getOrCreatePortfolio(User user, TransactionRequest request) {
-        return portfolioRepository.findByUserAndSymbol(user, request.getStockSymbol())
-            .orElseGet(() -> {
-                Portfolio newPortfolio = new Portfolio();
-                newPortfolio.setUser(user);
-                newPortfolio.setSymbol(request.getStockSymbol());
-                newPortfolio.setName(request.getStockName());
-                newPortfolio.setQuantity(0);
-                newPortfolio.setAveragePrice(0.0);
-                return newPortfolio;
-            });
+    private Map<String, Portfolio> lockAll(User user, Set<String> symbols) {
+        Map<String, Portfolio> positions = new HashMap<>();
+        portfolioRepository.findAllForUpdate(user.getId(), symbols)
+            .forEach(portfolio -> positions.put(portfolio.getSymbol(), portfolio));
+        return positions;
     }
 
+    // The position is managed and locked; changes are flushed on commit
     private void updatePortfolio(Portfolio portfolio, TransactionRequest request, StockQuote quote) {
         int newQuantity = "BUY".equals(request.getType())
                 ? portfolio.getQuantity() + request.getQuantity()
@@ -76,11 +210,13 @@ public class TransactionService {
         portfolio.setAveragePrice(newQuantity > 0 ? newTotalCost / newQuantity : 0);
         portfolio.setCurrentPrice(quote.getCurrentPrice());
         portfolio.setLastUpdated(LocalDateTime.now());
-
-        portfolioRepository.save(portfolio);
     }
 
     private void saveTransaction(User user, TransactionRequest request, StockQuote quote) {
+        transactionRepository.save(newTransaction(user, request, quote));
+    }
+
+    private Transaction newTransaction(User user, TransactionRequest request, StockQuote quote) {
         Transaction transaction = new Transaction();
         transaction.setUser(user);
         transaction.setSymbol(request.getStockSymbol());
@@ -88,7 +224,7 @@ public class TransactionService {
         transaction.setQuantity(request.getQuantity());
         transaction.setPrice(quote.getCurrentPrice());
         transaction.setStatus("COMPLETED");
-        transactionRepository.save(transaction);
+        return transaction;
     }
 
 
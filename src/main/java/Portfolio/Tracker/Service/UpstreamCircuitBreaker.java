@@ -0,0 +1,87 @@
+package Portfolio.Tracker.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Circuit breaker around Finnhub. After {@code failureThreshold} consecutive upstream
+ * failures it opens and rejects calls immediately for {@code openDurationMs}, so
+ * request threads stop waiting on timeouts while the upstream is down. After that a
+ * single trial call is let through: success closes the circuit, failure reopens it.
+ */
+@Component
+@Slf4j
+public class UpstreamCircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public UpstreamCircuitBreaker(@Value("${finnhub.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                                  @Value("${finnhub.circuit-breaker.open-duration-ms:30000}") long openDurationMs,
+                                  MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+        Gauge.builder("finnhub.circuit.open", this, breaker -> breaker.getState() == State.CLOSED ? 0 : 1)
+            .description("Whether calls to Finnhub are currently being short-circuited")
+            .register(meterRegistry);
+    }
+
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openDurationMs) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Finnhub circuit closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            log.warn("Finnhub circuit opened after {} consecutive failures", consecutiveFailures);
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Gives back a trial slot for a call that was admitted but never reached the upstream.
+     */
+    public synchronized void releaseTrial() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
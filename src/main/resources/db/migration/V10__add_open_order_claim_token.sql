@@ -0,0 +1,7 @@
+-- Token of the execution that triggered an order; transitions out of TRIGGERED must
+-- present it, so a stale execution cannot finish an order that was recovered and
+-- triggered again elsewhere.
+
+alter table open_orders add column if not exists claim_token varchar(64);
+
+create index if not exists idx_open_orders_status_updated on open_orders (status, updated_at);
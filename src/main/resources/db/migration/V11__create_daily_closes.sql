@@ -0,0 +1,9 @@
+-- End-of-day close per symbol, written by the snapshot job from the prices it freezes.
+-- Risk estimates read their volatility history from here so it survives restarts.
+
+create table if not exists daily_closes (
+    symbol varchar(255) not null,
+    close_date date not null,
+    close_price double precision not null,
+    primary key (symbol, close_date)
+);
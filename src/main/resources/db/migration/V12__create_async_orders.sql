@@ -0,0 +1,19 @@
+-- Orders accepted by /transaction/async. The row is written before the order is
+-- acknowledged, so queued work and its status survive a restart.
+
+create table if not exists async_orders (
+    id varchar(36) primary key,
+    user_id bigint not null references users (id),
+    symbol varchar(255) not null,
+    stock_name varchar(255),
+    type varchar(255) not null,
+    quantity integer not null,
+    state varchar(255) not null,
+    message text,
+    claim_token varchar(64),
+    submitted_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    completed_at timestamp(6)
+);
+
+create index if not exists idx_async_orders_state_submitted on async_orders (state, submitted_at);
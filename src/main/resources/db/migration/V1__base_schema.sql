@@ -0,0 +1,54 @@
+-- Schema as it stood before migrations were introduced. Existing databases are
+-- baselined at this version (spring.flyway.baseline-version=1) and skip it.
+
+create table users (
+    id bigint generated by default as identity primary key,
+    email varchar(255) unique,
+    password varchar(255),
+    name varchar(255),
+    provider varchar(255),
+    otp_secret varchar(255),
+    is_passkey_enabled boolean not null
+);
+
+create table user_roles (
+    user_id bigint not null references users (id),
+    roles varchar(255)
+);
+
+create table login_activity (
+    id bigint generated by default as identity primary key,
+    date date,
+    count integer not null,
+    user_id bigint not null references users (id)
+);
+
+create table portfolios (
+    id bigint generated by default as identity primary key,
+    user_id bigint not null references users (id),
+    symbol varchar(255),
+    name varchar(255),
+    quantity integer not null,
+    average_price double precision not null,
+    current_price double precision not null,
+    day_change_percent double precision not null,
+    high_price double precision not null,
+    low_price double precision not null,
+    open_price double precision not null,
+    previous_close double precision not null,
+    total_value double precision not null,
+    purchase_date timestamp(6),
+    last_updated timestamp(6)
+);
+
+create table transactions (
+    id bigint generated by default as identity primary key,
+    user_id bigint not null references users (id),
+    symbol varchar(255),
+    type varchar(255),
+    quantity integer not null,
+    price double precision not null,
+    total_amount double precision not null,
+    status varchar(255),
+    date timestamp(6)
+);
@@ -0,0 +1,12 @@
+-- Durable company profiles behind the in-memory StockInfo cache.
+-- "if not exists" because earlier builds let Hibernate create these objects.
+
+create table if not exists stock_profiles (
+    symbol varchar(255) primary key,
+    name varchar(255),
+    currency varchar(255),
+    exchange varchar(255),
+    fetched_at timestamp(6) not null
+);
+
+create index if not exists idx_stock_profiles_fetched_at on stock_profiles (fetched_at);
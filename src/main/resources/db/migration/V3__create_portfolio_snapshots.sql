@@ -0,0 +1,12 @@
+-- One end-of-day valuation per user; the unique key is the upsert target of the snapshot job.
+
+create table if not exists portfolio_snapshots (
+    id bigint generated by default as identity primary key,
+    user_id bigint not null references users (id),
+    snapshot_date date not null,
+    total_value double precision not null,
+    total_cost double precision not null,
+    day_change double precision not null,
+    positions integer not null,
+    constraint uk_portfolio_snapshots_user_date unique (user_id, snapshot_date)
+);
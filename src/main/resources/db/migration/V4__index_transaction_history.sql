@@ -0,0 +1,4 @@
+-- Keyset pagination over a user's history, optionally filtered by symbol.
+
+create index if not exists idx_transactions_user_date_id on transactions (user_id, date, id);
+create index if not exists idx_transactions_user_symbol_date on transactions (user_id, symbol, date, id);
@@ -0,0 +1,9 @@
+-- Pooled ids for batched transaction inserts. The increment must match the
+-- allocationSize of the Transaction id generator. The sequence starts past every id
+-- already handed out, whether by the old identity column or by an existing sequence.
+
+create sequence if not exists transactions_seq start with 1 increment by 50;
+
+select setval('transactions_seq',
+    greatest((select coalesce(max(id), 0) from transactions), (select last_value from transactions_seq)) + 50,
+    false);
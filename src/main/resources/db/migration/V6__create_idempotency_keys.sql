@@ -0,0 +1,12 @@
+-- Claims on Idempotency-Key headers and the responses to replay for them.
+
+create table if not exists idempotency_keys (
+    id varchar(512) primary key,
+    request_hash varchar(255) not null,
+    state varchar(255) not null,
+    status_code integer,
+    response_body text,
+    created_at timestamp(6) not null
+);
+
+create index if not exists idx_idempotency_keys_created_at on idempotency_keys (created_at);
@@ -0,0 +1,22 @@
+-- Resting limit and stop orders.
+
+create table if not exists open_orders (
+    id bigint generated by default as identity primary key,
+    user_id bigint not null references users (id),
+    symbol varchar(255),
+    stock_name varchar(255),
+    side varchar(255),
+    order_type varchar(255),
+    trigger_price double precision not null,
+    quantity integer not null,
+    status varchar(255),
+    message text,
+    created_at timestamp(6),
+    updated_at timestamp(6)
+);
+
+-- Earlier builds created message as varchar(255), too short for some failure messages
+alter table open_orders alter column message type text;
+
+create index if not exists idx_open_orders_status on open_orders (status);
+create index if not exists idx_open_orders_user_status on open_orders (user_id, status);
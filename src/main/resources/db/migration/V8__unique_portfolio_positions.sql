@@ -0,0 +1,28 @@
+-- Before trades locked the position row, two concurrent first buys could each insert
+-- a row for the same (user_id, symbol). Merge such duplicates into the oldest row,
+-- summing quantities and weighting the average price by quantity, then add the unique
+-- index the locking trade path relies on.
+
+with merged as (
+    select user_id, symbol, min(id) as keep_id, sum(quantity) as quantity,
+           case when sum(quantity) > 0
+                then sum(average_price * quantity) / sum(quantity)
+                else 0 end as average_price
+    from portfolios
+    group by user_id, symbol
+    having count(*) > 1
+)
+update portfolios p
+set quantity = m.quantity,
+    average_price = m.average_price,
+    total_value = p.current_price * m.quantity
+from merged m
+where p.id = m.keep_id;
+
+delete from portfolios p
+using portfolios keep
+where keep.user_id = p.user_id
+  and keep.symbol = p.symbol
+  and keep.id < p.id;
+
+create unique index if not exists uk_portfolios_user_symbol on portfolios (user_id, symbol);
@@ -0,0 +1,4 @@
+-- When the refresh job last tried to refetch a stored profile. Cleared by a successful
+-- refetch, so a non-null value marks a failed attempt that should not be retried yet.
+
+alter table stock_profiles add column if not exists last_attempt_at timestamp(6);
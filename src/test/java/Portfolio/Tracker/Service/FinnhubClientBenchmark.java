@@ -0,0 +1,122 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.StockQuote;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one quote fetch through {@link FinnhubClient} compared with the path it
+ * replaced: a {@link RestTemplate} on the default request factory that buffers the body
+ * into a {@link JsonNode} tree and copies it into a {@link StockQuote}. Both hit the
+ * same local server answering a canned {@code /quote} body, so the difference is
+ * connection handling and decoding. The JDK server speaks HTTP/1.1 only, so the pooled
+ * client runs on keep-alive connections here rather than HTTP/2. Add {@code -prof gc}
+ * to see bytes allocated per call.
+ *
+ * <p>Not run by the test suite. Run with:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) \
+ *     org.openjdk.jmh.Main FinnhubClientBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Without TCP_NODELAY the JDK server's small writes stall on delayed ACKs for ~40ms
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class FinnhubClientBenchmark {
+    private static final String SYMBOL = "AAPL";
+    private static final byte[] QUOTE = ("{\"c\":191.25,\"d\":1.5,\"dp\":0.79,\"h\":192.1,\"l\":189.4,"
+        + "\"o\":190.0,\"pc\":189.75,\"t\":1700000000}").getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+    private FinnhubClient finnhubClient;
+    private RestTemplate restTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/quote", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, QUOTE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(QUOTE);
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(2);
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+        finnhubClient = new FinnhubClient(new ObjectMapper());
+        ReflectionTestUtils.setField(finnhubClient, "apiBaseUrl", baseUrl);
+        ReflectionTestUtils.setField(finnhubClient, "apiKey", "bench");
+
+        // As RestTemplateConfig builds it
+        restTemplate = new RestTemplateBuilder()
+            .setConnectTimeout(Duration.ofSeconds(5))
+            .setReadTimeout(Duration.ofSeconds(5))
+            .additionalInterceptors((request, body, execution) -> {
+                request.getHeaders().add("Accept", "application/json");
+                return execution.execute(request, body);
+            })
+            .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public StockQuote streamingClient() {
+        return finnhubClient.fetchQuote(SYMBOL);
+    }
+
+    @Benchmark
+    public StockQuote restTemplateTree() {
+        String url = String.format("%s/quote?symbol=%s&token=%s", baseUrl, SYMBOL, "bench");
+        JsonNode data = restTemplate.getForEntity(url, JsonNode.class).getBody();
+        return StockQuote.builder()
+            .currentPrice(data.get("c").asDouble())
+            .change(data.get("d").asDouble())
+            .dayChangePercent(data.get("dp").asDouble())
+            .highPrice(data.get("h").asDouble())
+            .lowPrice(data.get("l").asDouble())
+            .openPrice(data.get("o").asDouble())
+            .previousClose(data.get("pc").asDouble())
+            .timestamp(data.get("t").asLong())
+            .build();
+    }
+}
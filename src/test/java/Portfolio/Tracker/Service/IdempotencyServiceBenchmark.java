@@ -0,0 +1,111 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.ApiResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Throughput of trade submission through {@link IdempotencyService} against H2 in
+ * PostgreSQL mode: a plain transaction without a key, a fresh key (claim insert, the
+ * action and the stored response in one transaction) and a repeated key replayed from
+ * the in-memory execution. H2 has no network round trips, so the absolute numbers
+ * flatter the claim; the ratios are what to compare.
+ *
+ * <p>Not run by the test suite. Run with:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) \
+ *     org.openjdk.jmh.Main IdempotencyServiceBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class IdempotencyServiceBenchmark {
+    private static final String EMAIL = "trader@example.com";
+    private static final TypeReference<ApiResponse<Map<String, Object>>> RESPONSE_TYPE = new TypeReference<>() {
+    };
+    private static final Map<String, Object> REQUEST = Map.of("symbol", "AAPL", "quantity", 1);
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private IdempotencyService idempotencyService;
+    private Supplier<ResponseEntity<ApiResponse<Map<String, Object>>>> trade;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:idempotency-bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(10);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table idempotency_keys (id varchar(512) primary key, "
+            + "request_hash varchar(255) not null, state varchar(255) not null, status_code integer, "
+            + "response_body text, created_at timestamp(6) not null)");
+        jdbcTemplate.execute("create table trades (id bigint primary key, symbol varchar(255))");
+
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        idempotencyService = new IdempotencyService(jdbcTemplate, transactionTemplate, new ObjectMapper());
+        ReflectionTestUtils.setField(idempotencyService, "waitTimeoutMs", 30_000L);
+        ReflectionTestUtils.setField(idempotencyService, "claimTimeoutMs", 120_000L);
+
+        trade = () -> {
+            long id = sequence.incrementAndGet();
+            jdbcTemplate.update("insert into trades (id, symbol) values (?, ?)", id, "AAPL");
+            return ResponseEntity.ok(new ApiResponse<>(true, "Buy order executed successfully",
+                Map.of("id", id, "symbol", "AAPL")));
+        };
+        idempotencyService.execute(EMAIL, "repeated", "buy", REQUEST, RESPONSE_TYPE, trade);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiResponse<Map<String, Object>>> withoutKey() {
+        return transactionTemplate.execute(status -> trade.get());
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiResponse<Map<String, Object>>> freshKey() {
+        return idempotencyService.execute(EMAIL, "key-" + sequence.incrementAndGet(), "buy", REQUEST,
+            RESPONSE_TYPE, trade);
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiResponse<Map<String, Object>>> repeatedKey() {
+        return idempotencyService.execute(EMAIL, "repeated", "buy", REQUEST, RESPONSE_TYPE, trade);
+    }
+}
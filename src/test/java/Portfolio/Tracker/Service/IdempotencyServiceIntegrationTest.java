@@ -0,0 +1,277 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.ApiResponse;
+import Portfolio.Tracker.Exception.IdempotencyConflictException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exercises {@link IdempotencyService} against a real database: replays, concurrent
+ * duplicates within one instance and across instances, and the rollback that releases
+ * a key when the original request fails. Each action writes a row to
+ * {@code stock_profiles} so the tests can see whether its work was committed.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(IdempotencyService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceIntegrationTest {
+    private static final String EMAIL = "trader@example.com";
+    private static final TypeReference<ApiResponse<Map<String, Object>>> RESPONSE_TYPE = new TypeReference<>() {
+    };
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from idempotency_keys");
+        jdbcTemplate.update("delete from stock_profiles");
+    }
+
+    @Test
+    void repeatedKeyReplaysStoredResponseWithoutRunningAgain() {
+        ResponseEntity<ApiResponse<Map<String, Object>>> first = execute(idempotencyService, "key-1", "AAPL", succeed("AAPL"));
+        ResponseEntity<ApiResponse<Map<String, Object>>> second = execute(idempotencyService, "key-1", "AAPL", succeed("AAPL"));
+
+        assertEquals(1, executions.get());
+        assertEquals(first.getStatusCode(), second.getStatusCode());
+        assertEquals(first.getBody(), second.getBody());
+        assertEquals(1, profiles("AAPL"));
+        assertEquals("COMPLETED", jdbcTemplate.queryForObject(
+            "select state from idempotency_keys where id = ?", String.class, EMAIL + "|key-1"));
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForTheFirstAndShareItsResponse() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<ResponseEntity<ApiResponse<Map<String, Object>>>> slow = () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return succeed("MSFT").get();
+        };
+
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<ResponseEntity<ApiResponse<Map<String, Object>>>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> execute(idempotencyService, "key-2", "MSFT", slow)));
+            }
+            // Let every caller reach the service while the first one is still running
+            Thread.sleep(300);
+            release.countDown();
+
+            ResponseEntity<ApiResponse<Map<String, Object>>> expected = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<ResponseEntity<ApiResponse<Map<String, Object>>>> result : results) {
+                assertEquals(expected.getBody(), result.get(10, TimeUnit.SECONDS).getBody());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(1, profiles("MSFT"));
+    }
+
+    @Test
+    void duplicateOnAnotherInstanceWaitsForTheStoredResponse() throws Exception {
+        // A second service shares the table but not the in-memory executions
+        IdempotencyService otherInstance = new IdempotencyService(jdbcTemplate, transactionTemplate, objectMapper);
+        ReflectionTestUtils.setField(otherInstance, "waitTimeoutMs", 10_000L);
+        ReflectionTestUtils.setField(otherInstance, "claimTimeoutMs", 120_000L);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<ApiResponse<Map<String, Object>>>> first = executor.submit(() ->
+                execute(idempotencyService, "key-3", "NVDA", () -> {
+                    started.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return succeed("NVDA").get();
+                }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            Future<ResponseEntity<ApiResponse<Map<String, Object>>>> duplicate =
+                executor.submit(() -> execute(otherInstance, "key-3", "NVDA", succeed("NVDA")));
+            Thread.sleep(300);
+            release.countDown();
+
+            assertEquals(first.get(10, TimeUnit.SECONDS).getBody(), duplicate.get(10, TimeUnit.SECONDS).getBody());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(1, profiles("NVDA"));
+    }
+
+    @Test
+    void failedResponseRollsBackTheWorkAndReleasesTheKey() {
+        Supplier<ResponseEntity<ApiResponse<Map<String, Object>>>> rejected = () -> {
+            succeed("TSLA").get();
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, "Insufficient shares to sell", null));
+        };
+
+        ResponseEntity<ApiResponse<Map<String, Object>>> failed = execute(idempotencyService, "key-4", "TSLA", rejected);
+
+        assertEquals(HttpStatus.BAD_REQUEST, failed.getStatusCode());
+        assertEquals(0, profiles("TSLA"));
+        assertEquals(0, keys("key-4"));
+
+        // The same key may be retried and now runs the action
+        ResponseEntity<ApiResponse<Map<String, Object>>> retried = execute(idempotencyService, "key-4", "TSLA", succeed("TSLA"));
+        assertEquals(HttpStatus.OK, retried.getStatusCode());
+        assertEquals(2, executions.get());
+        assertEquals(1, profiles("TSLA"));
+    }
+
+    @Test
+    void exceptionRollsBackTheWorkAndReleasesTheKey() {
+        Supplier<ResponseEntity<ApiResponse<Map<String, Object>>>> throwing = () -> {
+            succeed("AMZN").get();
+            throw new IllegalStateException("boom");
+        };
+
+        assertThrows(IllegalStateException.class, () -> execute(idempotencyService, "key-5", "AMZN", throwing));
+        assertEquals(0, profiles("AMZN"));
+        assertEquals(0, keys("key-5"));
+
+        execute(idempotencyService, "key-5", "AMZN", succeed("AMZN"));
+        assertEquals(1, profiles("AMZN"));
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRejected() {
+        execute(idempotencyService, "key-6", "AAPL", succeed("AAPL"));
+
+        IdempotencyConflictException conflict = assertThrows(IdempotencyConflictException.class,
+            () -> execute(idempotencyService, "key-6", "GOOG", succeed("GOOG")));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, conflict.getStatus());
+        assertEquals(0, profiles("GOOG"));
+    }
+
+    @Test
+    void abandonedClaimIsTakenOverOnlyOnceStale() {
+        // Left IN_PROGRESS by an instance that died before completing
+        insertClaim("key-7", "AAPL", LocalDateTime.now().minusMinutes(10));
+        ResponseEntity<ApiResponse<Map<String, Object>>> response = execute(idempotencyService, "key-7", "AAPL", succeed("AAPL"));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, profiles("AAPL"));
+        assertEquals("COMPLETED", jdbcTemplate.queryForObject(
+            "select state from idempotency_keys where id = ?", String.class, EMAIL + "|key-7"));
+
+        // A recent claim may still be running, so it is waited on rather than taken over
+        ReflectionTestUtils.setField(idempotencyService, "waitTimeoutMs", 300L);
+        insertClaim("key-8", "MSFT", LocalDateTime.now());
+        IdempotencyConflictException conflict = assertThrows(IdempotencyConflictException.class,
+            () -> execute(idempotencyService, "key-8", "MSFT", succeed("MSFT")));
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatus());
+        assertEquals(0, profiles("MSFT"));
+    }
+
+    @Test
+    void executionWhoseClaimWasTakenOverRollsBack() {
+        LocalDateTime takenOverAt = LocalDateTime.now().withNano(0);
+        Supplier<ResponseEntity<ApiResponse<Map<String, Object>>>> overran = () -> {
+            ResponseEntity<ApiResponse<Map<String, Object>>> response = succeed("META").get();
+            // Another instance takes the claim over, committing outside this transaction
+            CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                "update idempotency_keys set created_at = ? where id = ?",
+                Timestamp.valueOf(takenOverAt), EMAIL + "|key-9")).join();
+            return response;
+        };
+
+        assertThrows(IdempotencyConflictException.class, () -> execute(idempotencyService, "key-9", "META", overran));
+        assertEquals(0, profiles("META"));
+        // The new owner's claim is left in place
+        assertEquals(Timestamp.valueOf(takenOverAt), jdbcTemplate.queryForObject(
+            "select created_at from idempotency_keys where id = ? and state = 'IN_PROGRESS'",
+            Timestamp.class, EMAIL + "|key-9"));
+    }
+
+    private void insertClaim(String key, String symbol, LocalDateTime claimedAt) {
+        jdbcTemplate.update("insert into idempotency_keys (id, request_hash, state, created_at) values (?, ?, ?, ?)",
+            EMAIL + "|" + key, ReflectionTestUtils.invokeMethod(idempotencyService, "fingerprint", "buy",
+                Map.of("symbol", symbol)), "IN_PROGRESS", Timestamp.valueOf(claimedAt));
+    }
+
+    private ResponseEntity<ApiResponse<Map<String, Object>>> execute(
+            IdempotencyService service, String key, String symbol,
+            Supplier<ResponseEntity<ApiResponse<Map<String, Object>>>> action) {
+        return service.execute(EMAIL, key, "buy", Map.of("symbol", symbol), RESPONSE_TYPE, action);
+    }
+
+    // Writes a row inside the caller's transaction and reports success
+    private Supplier<ResponseEntity<ApiResponse<Map<String, Object>>>> succeed(String symbol) {
+        return () -> {
+            int execution = executions.incrementAndGet();
+            jdbcTemplate.update("insert into stock_profiles (symbol, name, fetched_at) values (?, ?, ?)",
+                symbol, symbol + " Inc", Timestamp.valueOf(LocalDateTime.now()));
+            return ResponseEntity.ok(new ApiResponse<>(true, "Buy order executed successfully",
+                Map.of("symbol", symbol, "execution", execution)));
+        };
+    }
+
+    private int profiles(String symbol) {
+        return jdbcTemplate.queryForObject("select count(*) from stock_profiles where symbol = ?", Integer.class, symbol);
+    }
+
+    private int keys(String key) {
+        return jdbcTemplate.queryForObject("select count(*) from idempotency_keys where id = ?", Integer.class,
+            EMAIL + "|" + key);
+    }
+}
@@ -0,0 +1,172 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.Repository.OpenOrderRepository;
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.DeploymentException;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.ServerContainer;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.apache.catalina.Context;
+import org.apache.catalina.servlets.DefaultServlet;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.websocket.server.WsSci;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs {@link MarketDataStreamService} against a stand-in for the Finnhub feed: an
+ * embedded WebSocket endpoint that records what the client sends and replays trade
+ * frames to it. Checks that trades reach the publisher, and that after the feed drops
+ * the connection the client reconnects and replays every subscription.
+ */
+class MarketDataStreamServiceReplayTest {
+    private static final Set<String> WATCHED = Set.of("AAPL", "MSFT", "TSLA");
+
+    private final PriceUpdatePublisher priceUpdatePublisher = mock(PriceUpdatePublisher.class);
+    private final FeedStandIn feed = new FeedStandIn();
+
+    private Tomcat tomcat;
+    private MarketDataStreamService streamService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        File baseDir = Files.createTempDirectory("feed-stand-in").toFile();
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.getAbsolutePath());
+        tomcat.setPort(0);
+        Context context = tomcat.addContext("", baseDir.getAbsolutePath());
+        context.addServletContainerInitializer(new WsSci(), null);
+        // WsFilter only sees requests that map to some servlet
+        Tomcat.addServlet(context, "default", new DefaultServlet());
+        context.addServletMappingDecoded("/", "default");
+        context.addServletContainerInitializer((classes, servletContext) -> servletContext.addListener(
+            new ServletContextListener() {
+            @Override
+            public void contextInitialized(ServletContextEvent event) {
+                ServerContainer container = (ServerContainer) event.getServletContext()
+                    .getAttribute(ServerContainer.class.getName());
+                try {
+                    container.addEndpoint(ServerEndpointConfig.Builder.create(FeedStandIn.class, "/")
+                        .configurator(new ServerEndpointConfig.Configurator() {
+                            @Override
+                            public <T> T getEndpointInstance(Class<T> endpointClass) {
+                                return endpointClass.cast(feed);
+                            }
+                        })
+                        .build());
+                } catch (DeploymentException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }), null);
+        tomcat.getConnector();
+        tomcat.start();
+
+        PortfolioRepository portfolioRepository = mock(PortfolioRepository.class);
+        when(portfolioRepository.findDistinctHeldSymbols()).thenReturn(List.of("AAPL", "MSFT"));
+        OpenOrderRepository openOrderRepository = mock(OpenOrderRepository.class);
+        when(openOrderRepository.findDistinctOpenSymbols()).thenReturn(List.of("TSLA", "AAPL"));
+
+        streamService = new MarketDataStreamService(priceUpdatePublisher, portfolioRepository, openOrderRepository,
+            new ObjectMapper());
+        ReflectionTestUtils.setField(streamService, "streamUrl",
+            "ws://localhost:" + tomcat.getConnector().getLocalPort() + "/");
+        ReflectionTestUtils.setField(streamService, "apiKey", "test-key");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        streamService.stop();
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    @Test
+    void tradesArePublishedAndSubscriptionsReplayedAfterReconnect() throws Exception {
+        streamService.start();
+
+        awaitSubscriptions(1);
+        feed.replay(0, "{\"type\":\"ping\"}");
+        feed.replay(0, "{\"type\":\"trade\",\"data\":[{\"s\":\"AAPL\",\"p\":191.25,\"v\":10,\"t\":1700000000000},"
+            + "{\"s\":\"TSLA\",\"p\":240.5,\"v\":3,\"t\":1700000000500}]}");
+        verify(priceUpdatePublisher, timeout(5000)).publishTrade("AAPL", 191.25, 10, 1700000000000L);
+        verify(priceUpdatePublisher, timeout(5000)).publishTrade("TSLA", 240.5, 3, 1700000000500L);
+
+        // The feed drops the connection; the client backs off, reconnects and resubscribes
+        feed.drop(0);
+        awaitSubscriptions(2);
+        feed.replay(1, "{\"type\":\"trade\",\"data\":[{\"s\":\"MSFT\",\"p\":410.0,\"v\":1,\"t\":1700000060000}]}");
+        verify(priceUpdatePublisher, timeout(5000)).publishTrade("MSFT", 410.0, 1, 1700000060000L);
+    }
+
+    // Waits until the given connection has subscribed to every watched symbol exactly once
+    private void awaitSubscriptions(int connections) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while (System.nanoTime() < deadline) {
+            if (feed.sessions.size() >= connections && feed.received.stream()
+                    .filter(message -> message.session() == connections - 1)
+                    .count() >= WATCHED.size()) {
+                List<String> subscribed = feed.received.stream()
+                    .filter(message -> message.session() == connections - 1)
+                    .map(Received::text)
+                    .sorted()
+                    .collect(Collectors.toList());
+                assertEquals(WATCHED.stream()
+                    .sorted()
+                    .map(symbol -> "{\"type\":\"subscribe\",\"symbol\":\"" + symbol + "\"}")
+                    .collect(Collectors.toList()), subscribed);
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("Connection " + connections + " did not subscribe to " + WATCHED + ": " + feed.received);
+    }
+
+    private record Received(int session, String text) {
+    }
+
+    public static class FeedStandIn extends Endpoint {
+        final List<Session> sessions = new CopyOnWriteArrayList<>();
+        final List<Received> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            int index = sessions.size();
+            sessions.add(session);
+            session.addMessageHandler(String.class,
+                (MessageHandler.Whole<String>) text -> received.add(new Received(index, text)));
+        }
+
+        void replay(int session, String frame) throws Exception {
+            sessions.get(session).getBasicRemote().sendText(frame);
+        }
+
+        void drop(int session) throws Exception {
+            sessions.get(session).close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "restart"));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.AuthProvider;
+import Portfolio.Tracker.DTO.OpenOrderRequest;
+import Portfolio.Tracker.DTO.Role;
+import Portfolio.Tracker.Entity.OpenOrder;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.OpenOrderRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Recovery of orders left TRIGGERED, against a real database: only orders past the
+ * staleness cutoff are reopened, and an execution whose claim was taken over while it
+ * ran rolls its trade back without touching the order.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(OpenOrderService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OpenOrderServiceRecoveryTest {
+    private static final String EMAIL = "trader@example.com";
+    private static final String SYMBOL = "AAPL";
+
+    @Autowired
+    private OpenOrderService openOrderService;
+
+    @Autowired
+    private OpenOrderRepository openOrderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private TransactionService transactionService;
+
+    @MockBean
+    private StockPriceService stockPriceService;
+
+    @MockBean
+    private PriceBook priceBook;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.save(User.builder()
+            .email(EMAIL)
+            .name("Trader")
+            .provider(AuthProvider.LOCAL)
+            .roles(Set.of(Role.ROLE_USER))
+            .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        openOrderRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void onlyStaleTriggeredOrdersAreReopened() {
+        Long stale = placeBuyLimit(100);
+        Long live = placeBuyLimit(90);
+        LocalDateTime now = LocalDateTime.now();
+        openOrderRepository.claim(stale, "crashed", now.minusMinutes(10));
+        openOrderRepository.claim(live, "running", now);
+
+        openOrderService.rebuildBooks();
+
+        assertEquals(OpenOrderService.OPEN, openOrderRepository.findById(stale).orElseThrow().getStatus());
+        OpenOrder running = openOrderRepository.findById(live).orElseThrow();
+        assertEquals(OpenOrderService.TRIGGERED, running.getStatus());
+        assertEquals("running", running.getClaimToken());
+    }
+
+    @Test
+    void executionThatLostItsClaimRollsBackWithoutFailingTheOrder() throws Exception {
+        Long id = placeBuyLimit(100);
+
+        // While the trade runs, the order is presumed abandoned, reopened and triggered again
+        // elsewhere. Done on another thread so it commits outside the execution's transaction.
+        doAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> {
+                String token = openOrderRepository.findById(id).orElseThrow().getClaimToken();
+                openOrderRepository.release(id, token, OpenOrderService.OPEN, null, LocalDateTime.now());
+                openOrderRepository.claim(id, "other-instance", LocalDateTime.now());
+            }).get(10, TimeUnit.SECONDS);
+            return null;
+        }).when(transactionService).processTransaction(any(), anyString(), any());
+
+        openOrderService.onPriceUpdate(SYMBOL, 99, 0, System.currentTimeMillis());
+        awaitExecutions();
+
+        verify(transactionService).processTransaction(any(), anyString(), any());
+        OpenOrder order = openOrderRepository.findById(id).orElseThrow();
+        assertEquals(OpenOrderService.TRIGGERED, order.getStatus());
+        assertEquals("other-instance", order.getClaimToken());
+    }
+
+    private Long placeBuyLimit(double triggerPrice) {
+        return openOrderService.placeOrder(OpenOrderRequest.builder()
+            .stockSymbol(SYMBOL)
+            .stockName("Apple Inc")
+            .side("BUY")
+            .orderType("LIMIT")
+            .triggerPrice(triggerPrice)
+            .quantity(1)
+            .build(), EMAIL).getId();
+    }
+
+    private void awaitExecutions() throws InterruptedException {
+        ScheduledExecutorService executor =
+            (ScheduledExecutorService) ReflectionTestUtils.getField(openOrderService, "executor");
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    }
+}
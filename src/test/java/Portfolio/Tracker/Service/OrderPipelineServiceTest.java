@@ -0,0 +1,142 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.AuthProvider;
+import Portfolio.Tracker.DTO.OrderStatus;
+import Portfolio.Tracker.DTO.Role;
+import Portfolio.Tracker.DTO.StockQuote;
+import Portfolio.Tracker.DTO.TransactionRequest;
+import Portfolio.Tracker.Entity.AsyncOrder;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.AsyncOrderRepository;
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import Portfolio.Tracker.Repository.TransactionRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Orders accepted by {@link OrderPipelineService} are stored before they are
+ * acknowledged, executed with a single quote fetch, and picked up again from the store
+ * when a previous instance stopped with orders queued or mid-execution.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({OrderPipelineService.class, TransactionService.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+// Each test shuts the stripes down to wait for its orders
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderPipelineServiceTest {
+    private static final String EMAIL = "trader@example.com";
+    private static final String SYMBOL = "AAPL";
+
+    @Autowired
+    private OrderPipelineService orderPipelineService;
+
+    @Autowired
+    private AsyncOrderRepository asyncOrderRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private StockPriceService stockPriceService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        when(stockPriceService.getQuote(anyString())).thenReturn(StockQuote.builder()
+            .currentPrice(100.0)
+            .timestamp(System.currentTimeMillis() / 1000)
+            .build());
+        user = userRepository.save(User.builder()
+            .email(EMAIL)
+            .name("Trader")
+            .provider(AuthProvider.LOCAL)
+            .roles(Set.of(Role.ROLE_USER))
+            .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncOrderRepository.deleteAll();
+        transactionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void submittedOrderIsStoredAndExecutedWithOneQuoteFetch() throws Exception {
+        OrderStatus accepted = orderPipelineService.submit(TransactionRequest.builder()
+            .stockSymbol(SYMBOL)
+            .stockName("Apple Inc")
+            .type("BUY")
+            .quantity(3)
+            .build(), EMAIL);
+        assertEquals(OrderStatus.State.QUEUED, accepted.getState());
+
+        orderPipelineService.shutdown();
+
+        OrderStatus finished = orderPipelineService.getStatus(accepted.getOrderId(), EMAIL).orElseThrow();
+        assertEquals(OrderStatus.State.COMPLETED, finished.getState());
+        assertEquals(3, portfolioRepository.findByUserAndSymbol(user, SYMBOL).orElseThrow().getQuantity());
+        verify(stockPriceService, times(1)).getQuote(SYMBOL);
+    }
+
+    @Test
+    void ordersLeftQueuedOrRunningByAStoppedInstanceAreResumed() throws Exception {
+        LocalDateTime longAgo = LocalDateTime.now().minusHours(1);
+        String queued = storeOrder("QUEUED", 2, longAgo);
+        String running = storeOrder("RUNNING", 5, longAgo);
+
+        orderPipelineService.resumeOnStartup();
+        orderPipelineService.shutdown();
+
+        assertEquals("COMPLETED", asyncOrderRepository.findById(queued).orElseThrow().getState());
+        assertEquals("COMPLETED", asyncOrderRepository.findById(running).orElseThrow().getState());
+        assertEquals(7, portfolioRepository.findByUserAndSymbol(user, SYMBOL).orElseThrow().getQuantity());
+    }
+
+    private String storeOrder(String state, int quantity, LocalDateTime at) {
+        AsyncOrder order = new AsyncOrder();
+        order.setId(UUID.randomUUID().toString());
+        order.setUser(user);
+        order.setSymbol(SYMBOL);
+        order.setStockName("Apple Inc");
+        order.setType("BUY");
+        order.setQuantity(quantity);
+        order.setState(state);
+        order.setClaimToken("RUNNING".equals(state) ? "crashed" : null);
+        order.setSubmittedAt(at);
+        order.setUpdatedAt(at);
+        return asyncOrderRepository.save(order).getId();
+    }
+}
@@ -0,0 +1,107 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.PortfolioRisk;
+import Portfolio.Tracker.Entity.Portfolio;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Latency of one {@link RiskService#simulate} call at the endpoint's default size
+ * (20,000 paths over 10 days) for growing portfolios. Repositories and price sources
+ * are stubbed, so this measures the simulation and the quantile sorts only; every
+ * position uses the default volatility.
+ *
+ * <p>Not run by the test suite. Run with:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) \
+ *     org.openjdk.jmh.Main RiskServiceBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RiskServiceBenchmark {
+    private static final String EMAIL = "trader@example.com";
+
+    @Param({"1", "10", "50"})
+    private int positions;
+
+    @Param({"20000"})
+    private int paths;
+
+    @Param({"10"})
+    private int horizonDays;
+
+    private RiskService riskService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        User user = new User();
+        List<Portfolio> holdings = new ArrayList<>();
+        for (int i = 0; i < positions; i++) {
+            Portfolio holding = new Portfolio();
+            holding.setUser(user);
+            holding.setSymbol("SYM" + i);
+            holding.setQuantity(10);
+            holding.setCurrentPrice(100 + i);
+            holdings.add(holding);
+        }
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+        PortfolioRepository portfolioRepository = mock(PortfolioRepository.class);
+        when(portfolioRepository.findByUser(any())).thenReturn(holdings);
+        CandleAggregator candleAggregator = mock(CandleAggregator.class);
+        when(candleAggregator.getCandles(anyString(), any(), anyInt())).thenReturn(List.of());
+
+        riskService = new RiskService(mock(NamedParameterJdbcTemplate.class), portfolioRepository, userRepository,
+            candleAggregator, mock(PriceBook.class), 0, 1);
+        ReflectionTestUtils.setField(riskService, "defaultAnnualVolatility", 0.30);
+        ReflectionTestUtils.setField(riskService, "marketCorrelation", 0.5);
+        ReflectionTestUtils.setField(riskService, "maxPaths", 100_000);
+        ReflectionTestUtils.setField(riskService, "maxHorizonDays", 250);
+        ReflectionTestUtils.setField(riskService, "maxSteps", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(riskService, "acquireTimeoutMs", 60_000L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        riskService.shutdown();
+    }
+
+    @Benchmark
+    public PortfolioRisk simulate() {
+        return riskService.simulate(EMAIL, horizonDays, paths);
+    }
+}
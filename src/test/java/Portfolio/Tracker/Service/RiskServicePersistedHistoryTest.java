@@ -0,0 +1,114 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.AuthProvider;
+import Portfolio.Tracker.DTO.PortfolioRisk;
+import Portfolio.Tracker.DTO.Role;
+import Portfolio.Tracker.Entity.Portfolio;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Volatility comes from the closes persisted in {@code daily_closes}, so a fresh
+ * process with empty in-memory candles still uses real history instead of the default,
+ * and simulations larger than the step budget are refused up front.
+ */
+@DataJpaTest(properties = "portfolio.risk.max-steps=1000000")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(RiskService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RiskServicePersistedHistoryTest {
+    private static final String EMAIL = "trader@example.com";
+    private static final String SYMBOL = "AAPL";
+
+    @Autowired
+    private RiskService riskService;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Empty candles and no live prices, as right after a restart
+    @MockBean
+    private CandleAggregator candleAggregator;
+
+    @MockBean
+    private PriceBook priceBook;
+
+    @BeforeEach
+    void setUp() {
+        // The test schema is generated from entities; daily_closes is only written over JDBC
+        jdbcTemplate.execute("create table if not exists daily_closes (symbol varchar(255) not null, "
+            + "close_date date not null, close_price double precision not null, primary key (symbol, close_date))");
+        User user = userRepository.save(User.builder()
+            .email(EMAIL)
+            .name("Trader")
+            .provider(AuthProvider.LOCAL)
+            .roles(Set.of(Role.ROLE_USER))
+            .build());
+        Portfolio position = new Portfolio();
+        position.setUser(user);
+        position.setSymbol(SYMBOL);
+        position.setName("Apple Inc");
+        position.setQuantity(10);
+        position.setAveragePrice(100);
+        position.setCurrentPrice(100);
+        portfolioRepository.save(position);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from daily_closes");
+        portfolioRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void persistedFlatHistoryMeansNoRisk() {
+        PortfolioRisk withoutHistory = riskService.simulate(EMAIL, 10, 1000);
+        assertTrue(withoutHistory.getValueAtRisk95() > 0);
+
+        LocalDate today = LocalDate.now();
+        for (int day = 0; day < 40; day++) {
+            jdbcTemplate.update("insert into daily_closes (symbol, close_date, close_price) values (?, ?, ?)",
+                SYMBOL, Date.valueOf(today.minusDays(day)), 100.0);
+        }
+
+        PortfolioRisk withHistory = riskService.simulate(EMAIL, 10, 1000);
+        assertEquals(0, withHistory.getValueAtRisk95(), 1e-9);
+        assertEquals(0, withHistory.getExpectedMaxDrawdown(), 1e-9);
+    }
+
+    @Test
+    void simulationOverTheStepBudgetIsRefused() {
+        RuntimeException refused = assertThrows(RuntimeException.class,
+            () -> riskService.simulate(EMAIL, 250, 10_000));
+        assertTrue(refused.getMessage().startsWith("Simulation too large"));
+    }
+}
@@ -0,0 +1,123 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.StockInfo;
+import Portfolio.Tracker.DTO.StockQuote;
+import Portfolio.Tracker.Repository.StockProfileRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Concurrent cache misses on one symbol share a single upstream call: every caller
+ * parks on the same pending load while Finnhub is held back, and all of them get its
+ * result once it answers.
+ */
+class StockPriceServiceSingleFlightTest {
+    private static final String SYMBOL = "AAPL";
+    private static final int CALLERS = 16;
+
+    private final FinnhubClient finnhubClient = mock(FinnhubClient.class);
+    private final StockProfileRepository stockProfileRepository = mock(StockProfileRepository.class);
+    private final CountDownLatch upstreamReleased = new CountDownLatch(1);
+
+    private QuoteFetchEngine quoteFetchEngine;
+    private StockPriceService stockPriceService;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        quoteFetchEngine = new QuoteFetchEngine(8, 2, 4000);
+        PriceBook priceBook = new PriceBook();
+        stockPriceService = new StockPriceService(finnhubClient, quoteFetchEngine, meterRegistry, priceBook,
+            mock(PriceUpdatePublisher.class), new FinnhubRateLimiter(60, 10, 5000, 30000, meterRegistry),
+            new UpstreamCircuitBreaker(5, 30000, meterRegistry), stockProfileRepository);
+
+        when(finnhubClient.fetchQuote(anyString())).thenAnswer(invocation -> {
+            awaitRelease();
+            return StockQuote.builder()
+                .currentPrice(190.5)
+                .timestamp(System.currentTimeMillis() / 1000)
+                .build();
+        });
+        when(finnhubClient.fetchProfile(anyString())).thenAnswer(invocation -> {
+            awaitRelease();
+            return StockInfo.builder().symbol(SYMBOL).name("Apple Inc").build();
+        });
+        when(stockProfileRepository.findById(anyString())).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstreamReleased.countDown();
+        quoteFetchEngine.shutdown();
+    }
+
+    @Test
+    void concurrentQuoteMissesMakeOneUpstreamCall() throws Exception {
+        List<StockQuote> quotes = callConcurrently(() -> stockPriceService.getQuote(SYMBOL));
+
+        verify(finnhubClient, times(1)).fetchQuote(SYMBOL);
+        assertEquals(CALLERS, quotes.size());
+        quotes.forEach(quote -> assertEquals(190.5, quote.getCurrentPrice(), 1e-9));
+    }
+
+    @Test
+    void concurrentProfileMissesMakeOneUpstreamCall() throws Exception {
+        List<StockInfo> infos = callConcurrently(() -> stockPriceService.getStockInfo(SYMBOL));
+
+        verify(finnhubClient, times(1)).fetchProfile(SYMBOL);
+        assertEquals(CALLERS, infos.size());
+        infos.forEach(info -> assertEquals("Apple Inc", info.getName()));
+    }
+
+    // Starts every caller, waits until all of them are parked on the pending load, then
+    // lets the upstream answer
+    private <T> List<T> callConcurrently(Supplier<T> call) throws Exception {
+        ConcurrentLinkedQueue<T> results = new ConcurrentLinkedQueue<>();
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            Thread caller = new Thread(() -> results.add(call.get()), "caller-" + i);
+            callers.add(caller);
+            caller.start();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!callers.stream().allMatch(caller -> caller.getState() == Thread.State.WAITING)) {
+            if (System.nanoTime() > deadline) {
+                fail("Callers did not all block on the pending load");
+            }
+            Thread.sleep(5);
+        }
+        upstreamReleased.countDown();
+
+        for (Thread caller : callers) {
+            caller.join(TimeUnit.SECONDS.toMillis(10));
+            assertTrue(!caller.isAlive(), caller.getName() + " did not finish");
+        }
+        return new ArrayList<>(results);
+    }
+
+    private void awaitRelease() throws InterruptedException {
+        if (!upstreamReleased.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Upstream was never released");
+        }
+    }
+}
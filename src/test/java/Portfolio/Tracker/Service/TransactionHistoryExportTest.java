@@ -0,0 +1,124 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.AuthProvider;
+import Portfolio.Tracker.DTO.Role;
+import Portfolio.Tracker.DTO.TransactionFilter;
+import Portfolio.Tracker.Entity.Transaction;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.TransactionRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Exports walk the history a page at a time: every row comes out once, newest first,
+ * across page boundaries (including rows sharing a timestamp), and no connection is
+ * checked out while the rows are written to the client.
+ */
+@DataJpaTest(properties = "transactions.export.page-size=3")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(TransactionHistoryService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransactionHistoryExportTest {
+    private static final String EMAIL = "trader@example.com";
+    private static final int TRANSACTIONS = 10;
+
+    @Autowired
+    private TransactionHistoryService transactionHistoryService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final List<Long> expectedIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(User.builder()
+            .email(EMAIL)
+            .name("Trader")
+            .provider(AuthProvider.LOCAL)
+            .roles(Set.of(Role.ROLE_USER))
+            .build());
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setUser(user);
+            transaction.setSymbol("AAPL");
+            transaction.setType(i % 2 == 0 ? "BUY" : "SELL");
+            transaction.setQuantity(1);
+            transaction.setPrice(100 + i);
+            transaction.setStatus("COMPLETED");
+            transactionRepository.save(transaction);
+        }
+        transactionRepository.findByUser(user).stream()
+            .sorted(Comparator.comparing(Transaction::getDate).thenComparing(Transaction::getId).reversed())
+            .forEach(transaction -> expectedIds.add(transaction.getId()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void exportWritesEveryRowOnceNewestFirstWithoutHoldingAConnection() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        AtomicInteger activeWhileWriting = new AtomicInteger();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream client = new ByteArrayOutputStream() {
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                activeWhileWriting.accumulateAndGet(pool.getHikariPoolMXBean().getActiveConnections(), Math::max);
+                buffer.write(bytes, offset, length);
+            }
+
+            @Override
+            public void write(int b) {
+                activeWhileWriting.accumulateAndGet(pool.getHikariPoolMXBean().getActiveConnections(), Math::max);
+                buffer.write(b);
+            }
+        };
+
+        transactionHistoryService.export(EMAIL, new TransactionFilter(), TransactionHistoryService.ExportFormat.CSV, client);
+
+        List<String> lines = Arrays.asList(buffer.toString(StandardCharsets.UTF_8).split("\n"));
+        assertEquals("id,symbol,type,quantity,price,totalAmount,status,date", lines.get(0));
+        List<Long> exportedIds = lines.subList(1, lines.size()).stream()
+            .map(line -> Long.parseLong(line.substring(0, line.indexOf(','))))
+            .collect(Collectors.toList());
+        assertEquals(expectedIds, exportedIds);
+        assertEquals(0, activeWhileWriting.get());
+    }
+}
@@ -0,0 +1,162 @@
+package Portfolio.Tracker.Service;
+
+import Portfolio.Tracker.DTO.AuthProvider;
+import Portfolio.Tracker.DTO.Role;
+import Portfolio.Tracker.DTO.StockQuote;
+import Portfolio.Tracker.DTO.TransactionRequest;
+import Portfolio.Tracker.Entity.Portfolio;
+import Portfolio.Tracker.Entity.User;
+import Portfolio.Tracker.Repository.PortfolioRepository;
+import Portfolio.Tracker.Repository.TransactionRepository;
+import Portfolio.Tracker.Repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Hammers one position from many threads through {@link TransactionService} and checks
+ * that no trade is lost: every committed trade must be reflected in the final quantity.
+ * Runs against H2 in PostgreSQL mode with real transactions (no test-managed rollback),
+ * so the row locks and the insert-if-absent path behave as they do in production.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(TransactionService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransactionServiceConcurrencyTest {
+    private static final String EMAIL = "trader@example.com";
+    private static final String SYMBOL = "AAPL";
+    private static final double PRICE = 100.0;
+    private static final int THREADS = 8;
+    private static final int TRADES_PER_THREAD = 25;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private StockPriceService stockPriceService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        when(stockPriceService.getQuote(anyString())).thenReturn(StockQuote.builder()
+            .currentPrice(PRICE)
+            .timestamp(System.currentTimeMillis() / 1000)
+            .build());
+        user = userRepository.save(User.builder()
+            .email(EMAIL)
+            .name("Trader")
+            .provider(AuthProvider.LOCAL)
+            .roles(Set.of(Role.ROLE_USER))
+            .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentFirstBuysCreateOnePositionWithEveryShare() throws Exception {
+        runConcurrently(thread -> trade("BUY"));
+
+        List<Portfolio> positions = portfolioRepository.findByUser(user);
+        assertEquals(1, positions.size());
+        assertEquals(THREADS * TRADES_PER_THREAD, positions.get(0).getQuantity());
+        assertEquals(PRICE, positions.get(0).getAveragePrice(), 1e-9);
+        assertEquals(THREADS * TRADES_PER_THREAD, transactionRepository.findByUser(user).size());
+    }
+
+    @Test
+    void concurrentBuysAndSellsOnOnePositionNetOutExactly() throws Exception {
+        int initial = 1000;
+        trade("BUY", initial);
+
+        // Half the threads buy one share per trade, the other half sell one
+        runConcurrently(thread -> trade(thread % 2 == 0 ? "BUY" : "SELL"));
+
+        Portfolio position = portfolioRepository.findByUserAndSymbol(user, SYMBOL).orElseThrow();
+        assertEquals(initial, position.getQuantity());
+        assertEquals(PRICE, position.getAveragePrice(), 1e-9);
+        assertEquals(1 + THREADS * TRADES_PER_THREAD, transactionRepository.findByUser(user).size());
+    }
+
+    private void trade(String type) {
+        trade(type, 1);
+    }
+
+    private void trade(String type, int quantity) {
+        transactionService.processTransaction(TransactionRequest.builder()
+            .stockSymbol(SYMBOL)
+            .stockName("Apple Inc")
+            .type(type)
+            .quantity(quantity)
+            .build(), EMAIL);
+    }
+
+    // Starts all threads together and fails on the first trade that threw
+    private void runConcurrently(ThreadTrade trade) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                Callable<Void> task = () -> {
+                    start.await();
+                    for (int n = 0; n < TRADES_PER_THREAD; n++) {
+                        trade.run(thread);
+                    }
+                    return null;
+                };
+                results.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTrade {
+        void run(int thread);
+    }
+}